@@ -0,0 +1,51 @@
+package com.github.wings27.easylogger;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 无锁有界对象池，代替按线程分配的ThreadLocal缓存。
+ * 池的容量与CPU核数相当，因此在大量虚拟线程下池中对象的数量只与载体线程数相关，而不是与线程数相关。
+ * 池空时临时新建，池满时归还的实例直接丢弃。
+ *
+ * @param <T> 池中对象的类型
+ */
+abstract class BoundedPool<T> {
+
+    private final AtomicReferenceArray<T> slots =
+            new AtomicReferenceArray<T>(Math.max(4, Runtime.getRuntime().availableProcessors() * 2));
+
+    /**
+     * 池空时创建新实例。
+     */
+    protected abstract T create();
+
+    T acquire() {
+        int length = slots.length();
+        int start = startIndex(length);
+        for (int i = 0; i < length; i++) {
+            int index = (start + i) % length;
+            if (slots.get(index) != null) {
+                T instance = slots.getAndSet(index, null);
+                if (instance != null) {
+                    return instance;
+                }
+            }
+        }
+        return create();
+    }
+
+    void release(T instance) {
+        int length = slots.length();
+        int start = startIndex(length);
+        for (int i = 0; i < length; i++) {
+            int index = (start + i) % length;
+            if (slots.get(index) == null && slots.compareAndSet(index, null, instance)) {
+                return;
+            }
+        }
+    }
+
+    private static int startIndex(int length) {
+        return (int) (Thread.currentThread().getId() % length);
+    }
+}
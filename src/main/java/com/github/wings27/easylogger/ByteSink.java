@@ -0,0 +1,153 @@
+package com.github.wings27.easylogger;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * 渲染一条日志所用的字节缓冲区，包装一个按需倍增、之后保留复用的direct ByteBuffer.
+ * 预先编码的字段直接拷贝字节，其余文本经由CharsetEncoder编码写入。
+ * 实例不是线程安全的，由SinkPool分配或作为HandoffWriter环中的槽位，同一时刻只被一个线程使用。
+ */
+final class ByteSink {
+
+    private final Charset charset;
+
+    private final CharsetEncoder encoder;
+
+    private final StringBuilder scratch = new StringBuilder(64);
+
+    private ByteBuffer bytes;
+
+    // 作为HandoffWriter环中的槽位时，当前占用该槽位的序号
+    long sequence;
+
+    ByteSink(Charset charset, int initialCapacity) {
+        this.charset = charset;
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.bytes = ByteBuffer.allocateDirect(initialCapacity);
+    }
+
+    Charset charset() {
+        return charset;
+    }
+
+    void clear() {
+        bytes.clear();
+    }
+
+    /**
+     * 返回清空后的临时StringBuilder，供需要先生成字符的字段使用。
+     */
+    StringBuilder scratch() {
+        scratch.setLength(0);
+        return scratch;
+    }
+
+    void put(byte[] src) {
+        if (bytes.remaining() < src.length) {
+            grow(src.length);
+        }
+        bytes.put(src);
+    }
+
+    /**
+     * 拷贝src中剩余的全部字节，src的position随之前移。
+     */
+    void put(ByteBuffer src) {
+        if (bytes.remaining() < src.remaining()) {
+            grow(src.remaining());
+        }
+        bytes.put(src);
+    }
+
+    void put(byte b) {
+        if (!bytes.hasRemaining()) {
+            grow(1);
+        }
+        bytes.put(b);
+    }
+
+    void put(CharSequence text) {
+        put(text, 0, text.length());
+    }
+
+    /**
+     * 编码写入text中[start, end)区间的字符，不会为该区间创建新的String.
+     */
+    void put(CharSequence text, int start, int end) {
+        if (start == end) {
+            return;
+        }
+        CharBuffer chars = CharBuffer.wrap(text, start, end);
+        encoder.reset();
+        CoderResult result = encoder.encode(chars, bytes, true);
+        while (result.isOverflow()) {
+            grow(chars.remaining());
+            result = encoder.encode(chars, bytes, true);
+        }
+        result = encoder.flush(bytes);
+        while (result.isOverflow()) {
+            grow(16);
+            result = encoder.flush(bytes);
+        }
+    }
+
+    /**
+     * 以ASCII十进制数字写入value，适用于与ASCII兼容的字符集。
+     */
+    void putDecimal(long value) {
+        if (value == Long.MIN_VALUE) {
+            put("-9223372036854775808");
+            return;
+        }
+        if (bytes.remaining() < 20) {
+            grow(20);
+        }
+        if (value < 0) {
+            bytes.put((byte) '-');
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        int position = bytes.position();
+        for (int i = position + digits - 1; i >= position; i--) {
+            bytes.put(i, (byte) ('0' + value % 10));
+            value /= 10;
+        }
+        bytes.position(position + digits);
+    }
+
+    /**
+     * 切换为读模式并返回底层缓冲区，用于写出到channel.
+     */
+    ByteBuffer flip() {
+        bytes.flip();
+        return bytes;
+    }
+
+    /**
+     * 返回底层缓冲区，不改变其状态。
+     */
+    ByteBuffer buffer() {
+        return bytes;
+    }
+
+    private void grow(int required) {
+        int capacity = bytes.capacity() * 2;
+        while (capacity - bytes.position() < required) {
+            capacity *= 2;
+        }
+        ByteBuffer larger = ByteBuffer.allocateDirect(capacity);
+        bytes.flip();
+        larger.put(bytes);
+        bytes = larger;
+    }
+}
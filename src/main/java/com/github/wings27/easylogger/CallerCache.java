@@ -0,0 +1,53 @@
+package com.github.wings27.easylogger;
+
+import java.nio.charset.Charset;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 调用位置（%l）的编码缓存，每个EasyLog4jLogger持有一个实例。
+ * 以调用者的栈帧为key保存已按输出字符集编码好的位置信息，输出时只需拷贝字节。
+ * 调用位置超过上限后不再缓存，直接编码。
+ */
+final class CallerCache {
+
+    private static final int MAX_ENTRIES = 256;
+
+    private volatile Holder holder;
+
+    /**
+     * 返回调用位置按指定字符集编码后的字节。返回的数组为共享实例，调用方不得修改。
+     *
+     * @param caller  调用者栈帧
+     * @param charset 输出字符集
+     * @return 编码后的位置信息
+     */
+    byte[] get(StackTraceElement caller, Charset charset) {
+        Holder current = holder;
+        if (current == null || !current.charset.equals(charset)) {
+            current = new Holder(charset);
+            holder = current;
+        }
+
+        byte[] encoded = current.locations.get(caller);
+        if (encoded != null) {
+            return encoded;
+        }
+        encoded = PatternRenderer.formatLocation(caller).getBytes(charset);
+        if (current.locations.size() < MAX_ENTRIES) {
+            current.locations.putIfAbsent(caller, encoded);
+        }
+        return encoded;
+    }
+
+    private static final class Holder {
+        final Charset charset;
+
+        final ConcurrentMap<StackTraceElement, byte[]> locations =
+                new ConcurrentHashMap<StackTraceElement, byte[]>();
+
+        Holder(Charset charset) {
+            this.charset = charset;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.github.wings27.easylogger;
+
+import org.apache.log4j.Category;
+import org.apache.log4j.Level;
+import org.apache.log4j.spi.LocationInfo;
+import org.apache.log4j.spi.LoggingEvent;
+import org.apache.log4j.spi.ThrowableInformation;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 携带LogContext快照的LoggingEvent. 快照在创建事件时以引用拷贝的方式取得，
+ * 因此即使事件由其他线程（例如AsyncAppender）格式化，%K输出的仍是记录日志时的上下文。
+ * 序列化时（例如SocketAppender、JMSAppender）替换为普通的LoggingEvent，接收端无需依赖easy-logger.
+ */
+final class ContextLoggingEvent extends LoggingEvent {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient LogContext.Snapshot context;
+
+    ContextLoggingEvent(String fqnOfCategoryClass, Category logger, Level level, Object message,
+                        Throwable throwable, LogContext.Snapshot context) {
+        super(fqnOfCategoryClass, logger, level, message, throwable);
+        this.context = context;
+    }
+
+    ContextLoggingEvent(String fqnOfCategoryClass, Category logger, long timeStamp, Level level,
+                        Object message, String threadName, ThrowableInformation throwable,
+                        LocationInfo info, LogContext.Snapshot context) {
+        super(fqnOfCategoryClass, logger, timeStamp, level, message, threadName, throwable, null, info, null);
+        this.context = context;
+    }
+
+    /**
+     * 以普通的LoggingEvent代替本类参与序列化，上下文快照合并到事件的properties中，同名的MDC值优先。
+     * 调用位置只在已经计算过时才带上，与SocketAppender的LocationInfo选项的行为一致。
+     */
+    private Object writeReplace() {
+        @SuppressWarnings("unchecked")
+        Map<Object, Object> properties = new HashMap<Object, Object>(getProperties());
+        if (context != null) {
+            for (int i = 0; i < context.size(); i++) {
+                if (!properties.containsKey(context.keyAt(i))) {
+                    properties.put(context.keyAt(i), context.valueAt(i));
+                }
+            }
+        }
+        return new LoggingEvent(fqnOfCategoryClass, getLogger(), timeStamp, getLevel(), getMessage(),
+                getThreadName(), getThrowableInformation(), getNDC(),
+                locationInformationExists() ? getLocationInformation() : null, properties);
+    }
+
+    /**
+     * 返回事件所携带的上下文快照。不是由EasyLog4jLogger创建的事件不携带上下文，返回空快照，
+     * 而不是格式化线程当前的上下文，因为格式化线程（例如AsyncAppender的线程）与记录日志的线程可能不同。
+     */
+    static LogContext.Snapshot contextOf(LoggingEvent event) {
+        if (event instanceof ContextLoggingEvent) {
+            LogContext.Snapshot context = ((ContextLoggingEvent) event).context;
+            return context == null ? LogContext.Snapshot.EMPTY : context;
+        }
+        return LogContext.Snapshot.EMPTY;
+    }
+}
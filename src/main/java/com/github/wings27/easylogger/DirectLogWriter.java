@@ -0,0 +1,151 @@
+package com.github.wings27.easylogger;
+
+import org.apache.log4j.Level;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+
+/**
+ * 绕过log4j Appender/Layout的直接输出后端。
+ * ConversionPattern在构造时编译为PatternRenderer，每条日志直接编码进可复用的direct ByteBuffer：
+ * 同步模式下使用从池中取得的缓冲区并通过NIO channel一次写出，异步模式下使用HandoffWriter环中预先分配的槽位。
+ * 输出与PatternLayout逐字节一致。
+ * 格式化路径上没有按线程分配的缓存，异步模式下调用方不执行I/O，适合在虚拟线程中使用。
+ * 通过EasyLog4jLogger.setDirectWriter(DirectLogWriter)或setDirectWriters(DirectLogWriter...)启用，
+ * 级别判断优先采用LevelOverrides中的覆盖级别，其次为log4j配置。
+ */
+public class DirectLogWriter implements Closeable {
+
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+
+    private final PatternRenderer renderer;
+
+    private final Level threshold;
+
+    private final LogOutput output;
+
+    /**
+     * 以追加方式打开指定文件，使用平台默认字符集，不设置级别阈值。
+     *
+     * @param conversionPattern log4j格式的ConversionPattern
+     * @param fileName          日志文件名
+     * @throws IOException 打开文件失败时
+     */
+    public DirectLogWriter(String conversionPattern, String fileName) throws IOException {
+        this(conversionPattern, openAppend(fileName), Charset.defaultCharset(), Level.ALL, false);
+    }
+
+    /**
+     * 由指定的channel构造实例。
+     *
+     * @param conversionPattern log4j格式的ConversionPattern
+     * @param channel           输出channel，所有权转移给本实例
+     * @param charset           输出字符集
+     * @param threshold         级别阈值，低于该级别的日志不会输出，与Appender的Threshold含义相同
+     * @param async             是否由后台线程执行I/O. 在虚拟线程中记录日志时应设置为true，
+     *                          调用方只负责渲染和交接，不会因I/O钉住载体线程
+     */
+    public DirectLogWriter(String conversionPattern, WritableByteChannel channel,
+                           Charset charset, Level threshold, boolean async) {
+        this.renderer = new PatternRenderer(conversionPattern, charset);
+        this.threshold = threshold;
+        this.output = new LogOutput(channel, charset, INITIAL_BUFFER_SIZE, async);
+    }
+
+    static WritableByteChannel openAppend(String fileName) throws IOException {
+        File file = new File(fileName);
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs() && !parent.exists()) {
+            throw new IOException("Could not create directory " + parent);
+        }
+        return new FileOutputStream(file, true).getChannel();
+    }
+
+    /**
+     * 渲染并写出一条日志。写出失败时与log4j一样只打印错误，不向调用方抛出异常。
+     *
+     * @param level      日志级别
+     * @param callerFQCN logger包装器的全称类名，用于计算%l
+     * @param message    日志信息
+     * @param t          异常，可以为null
+     */
+    public void write(Level level, String callerFQCN, String message, Throwable t) {
+        write(level, callerFQCN, message, t, null);
+    }
+
+    /**
+     * 同write(Level, String, String, Throwable)，调用位置的编码结果从callers中复用。
+     */
+    void write(Level level, String callerFQCN, String message, Throwable t, CallerCache callers) {
+        write(System.currentTimeMillis(), level, Thread.currentThread().getName(), callerFQCN, message, t, callers,
+                LogContext.capture());
+    }
+
+    /**
+     * 写出一条之前记录下来的日志，时间戳、线程名和上下文使用记录时的值，不输出调用位置。
+     */
+    void writeRecorded(long timeStamp, Level level, String threadName, String message, Throwable t,
+                       LogContext.Snapshot context) {
+        write(timeStamp, level, threadName, null, message, t, null, context);
+    }
+
+    /**
+     * 以给定的时间戳、线程名和上下文渲染并写出一条日志，用于把同一事件交给多个后端。
+     */
+    void write(long timeStamp, Level level, String threadName, String callerFQCN,
+                       String message, Throwable t, CallerCache callers, LogContext.Snapshot context) {
+        if (!level.isGreaterOrEqual(threshold)) {
+            return;
+        }
+
+        if (output.isAsync()) {
+            // 异步模式下直接渲染进交接环的槽位，不经过池中的sink
+            ByteSink slot = output.claim();
+            if (slot == null) {
+                return;
+            }
+            boolean rendered = false;
+            try {
+                renderer.render(slot, timeStamp, level, threadName, callerFQCN, message, t, callers, context);
+                rendered = true;
+            } finally {
+                output.publish(slot, rendered);
+            }
+            return;
+        }
+
+        ByteSink sink = output.acquire();
+        renderer.render(sink, timeStamp, level, threadName, callerFQCN, message, t, callers, context);
+        output.write(sink);
+    }
+
+    /**
+     * 以示例日志反复执行渲染路径（包括调用位置的计算），结果直接丢弃，不写出。
+     * 用于在流量到来前让JIT编译格式化代码，参见LogWarmup.
+     *
+     * @param iterations 渲染次数
+     */
+    void warmUp(int iterations) {
+        CallerCache callers = new CallerCache();
+        for (int i = 0; i < iterations; i++) {
+            ByteSink sink = output.acquire();
+            renderer.render(sink, System.currentTimeMillis(), Level.INFO, Thread.currentThread().getName(),
+                    DirectLogWriter.class.getName(), "warm up " + i, null, callers, LogContext.capture());
+            output.release(sink);
+        }
+    }
+
+    /**
+     * 关闭底层channel. 异步模式下先等待积压的日志全部写出。
+     *
+     * @throws IOException 关闭失败时
+     */
+    @Override
+    public void close() throws IOException {
+        output.close();
+    }
+}
@@ -9,7 +9,10 @@ import org.slf4j.helpers.MarkerIgnoringBase;
 import org.slf4j.helpers.MessageFormatter;
 import org.slf4j.spi.LocationAwareLogger;
 
+import java.io.ObjectStreamException;
 import java.io.Serializable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Project easy-logger Created by wenqiushi at 2014/08/27 11:58.
@@ -23,6 +26,13 @@ import java.io.Serializable;
 public class EasyLog4jLogger extends MarkerIgnoringBase
         implements LocationAwareLogger, Serializable {
 
+    // 与未声明serialVersionUID时默认计算出的值一致，以兼容之前序列化的实例
+    private static final long serialVersionUID = 5286425628598710177L;
+
+    // 按loggerName和调用者全称类名缓存的规范实例，反序列化时据此还原
+    private static final ConcurrentMap<Key, EasyLog4jLogger> instances =
+            new ConcurrentHashMap<Key, EasyLog4jLogger>();
+
     protected String name;
 
     protected String callerClassName;
@@ -33,6 +43,20 @@ public class EasyLog4jLogger extends MarkerIgnoringBase
 
     protected transient org.apache.log4j.Logger logger;
 
+    // 直接输出时调用位置的编码缓存
+    private transient CallerCache callerCache;
+
+    // LevelOverrides的查找结果，覆盖规则变化后在下一次级别判断时更新
+    private transient volatile OverrideCache overrideCache;
+
+    private static final DirectLogWriter[] NO_WRITERS = new DirectLogWriter[0];
+
+    // 非空时日志经由这些DirectLogWriter直接输出，不再经过log4j的Appender. 数组在设置后不再修改
+    private static volatile DirectLogWriter[] directWriters = NO_WRITERS;
+
+    // 启用后结构化日志以JSON Lines的形式经由JsonLogWriter输出
+    private static volatile JsonLogWriter jsonWriter;
+
     /**
      * 由指定的loggerName构造类的实例。loggerName的详细信息请参阅log4j manual.
      *
@@ -55,9 +79,43 @@ public class EasyLog4jLogger extends MarkerIgnoringBase
         this.logger = getLoggerByName(loggerName);
 
         this.callerClassName = callerClassName;
+        this.callerCache = new CallerCache();
         this.traceCapable = isTraceCapable();  // 调用isTraceCapable()要在logger初始化之后
     }
 
+    /**
+     * 返回指定loggerName和调用者全称类名对应的规范实例，不存在时创建。
+     * 同一组参数总是返回同一实例，反序列化得到的实例也会被替换为该实例。
+     *
+     * @param loggerName      指定的loggerName
+     * @param callerClassName 调用者的全称类名
+     * @return 规范实例
+     */
+    public static EasyLog4jLogger getInstance(String loggerName, String callerClassName) {
+        Key key = new Key(loggerName, callerClassName);
+        EasyLog4jLogger logger = instances.get(key);
+        if (logger != null) {
+            return logger;
+        }
+
+        logger = new EasyLog4jLogger(loggerName, callerClassName);
+        EasyLog4jLogger oldLogger = instances.putIfAbsent(key, logger);
+
+        return oldLogger == null ? logger : oldLogger;
+    }
+
+    /**
+     * 反序列化时以规范实例代替新建的实例，从而还原transient的log4j logger,
+     * 并且不会重复查找log4j的logger层级或产生重复的logger实例。
+     *
+     * @return 规范实例
+     * @throws ObjectStreamException 不会抛出，仅为满足序列化机制的方法签名
+     */
+    @Override
+    protected Object readResolve() throws ObjectStreamException {
+        return getInstance(name, callerClassName);
+    }
+
     /**
      * 返回log4j是否支持名为TRACE的类目(category). 这一类目是从log4j 1.2.12版本开始支持的。
      * 注意，调用isTraceCapable()应确保在初始化logger之后进行，否则可能产生异常。
@@ -83,6 +141,166 @@ public class EasyLog4jLogger extends MarkerIgnoringBase
         return log4jLogger;
     }
 
+    /**
+     * 设置所有EasyLog4jLogger实例共用的唯一直接输出后端，等同于setDirectWriters(writer).
+     * 设置为null时恢复由log4j输出。
+     *
+     * @param writer 直接输出后端，可以为null
+     */
+    public static void setDirectWriter(DirectLogWriter writer) {
+        setDirectWriters(writer == null ? NO_WRITERS : new DirectLogWriter[]{writer});
+    }
+
+    /**
+     * 设置所有EasyLog4jLogger实例共用的一组直接输出后端，不传参数时恢复由log4j输出。
+     * 与log4j中一个logger挂载多个Appender一样，每条日志依次交给每个后端，由各后端按自己的threshold决定是否输出，
+     * 例如控制台、DEBUG级别的日志文件和ERROR级别的日志文件分别对应一个DirectLogWriter.
+     * 启用后级别判断不变（LevelOverrides中的覆盖级别优先，其次为log4j配置），但log4j中配置的Appender不再接收日志事件。
+     *
+     * @param writers 直接输出后端，不能包含null
+     */
+    public static void setDirectWriters(DirectLogWriter... writers) {
+        DirectLogWriter[] copy = writers.clone();
+        for (DirectLogWriter writer : copy) {
+            if (writer == null) {
+                throw new IllegalArgumentException("Direct writer must not be null.");
+            }
+        }
+        directWriters = copy;
+    }
+
+    /**
+     * 设置所有EasyLog4jLogger实例共用的结构化日志输出后端。
+     * 设置为null时结构化日志的字段以" key=value"的形式附加在信息之后，按普通日志输出。
+     *
+     * @param writer 结构化日志输出后端，可以为null
+     */
+    public static void setJsonWriter(JsonLogWriter writer) {
+        jsonWriter = writer;
+    }
+
+    /**
+     * @return 当前的直接输出后端，没有时为空数组。调用方不得修改返回的数组
+     */
+    static DirectLogWriter[] getDirectWriters() {
+        return directWriters;
+    }
+
+    private void doLog(String callerFQCN, Level level, String message, Throwable t) {
+        if (!isEnabledFor(level)) {
+            return;
+        }
+        dumpFlightRecorder(level);
+
+        DirectLogWriter[] writers = directWriters;
+        if (writers.length == 0) {
+            // 级别已在上面判断过（可能被LevelOverrides覆盖），因此不再经过Logger.log的级别判断
+            logger.callAppenders(new ContextLoggingEvent(callerFQCN, logger, level, message, t,
+                    LogContext.capture()));
+            return;
+        }
+        // 与同一个LoggingEvent交给多个Appender一样，各后端输出相同的时间戳、线程名和上下文
+        long timeStamp = System.currentTimeMillis();
+        String threadName = Thread.currentThread().getName();
+        LogContext.Snapshot context = LogContext.capture();
+        for (DirectLogWriter writer : writers) {
+            writer.write(timeStamp, level, threadName, callerFQCN, message, t, callerCache, context);
+        }
+    }
+
+    /**
+     * 判断指定级别是否启用。LevelOverrides中存在对本logger生效的覆盖级别时以其为准，否则以log4j配置为准。
+     */
+    private boolean isEnabledFor(Level level) {
+        LevelOverrides.Node overrides = LevelOverrides.snapshot();
+        OverrideCache cache = overrideCache;
+        if (cache == null || cache.overrides != overrides) {
+            cache = new OverrideCache(overrides, LevelOverrides.find(overrides, name));
+            overrideCache = cache;
+        }
+        if (cache.level == null) {
+            return logger.isEnabledFor(level);
+        }
+        return !logger.getLoggerRepository().isDisabled(level.toInt()) && level.isGreaterOrEqual(cache.level);
+    }
+
+    /**
+     * 返回TRACE级别的结构化日志构造器，级别未启用时返回不做任何事的单例。
+     *
+     * @return 结构化日志构造器
+     */
+    public EventBuilder atTrace() {
+        return at(traceCapable ? Level.TRACE : Level.DEBUG);
+    }
+
+    /**
+     * 返回DEBUG级别的结构化日志构造器，级别未启用时返回不做任何事的单例。
+     *
+     * @return 结构化日志构造器
+     */
+    public EventBuilder atDebug() {
+        return at(Level.DEBUG);
+    }
+
+    /**
+     * 返回INFO级别的结构化日志构造器，级别未启用时返回不做任何事的单例。
+     *
+     * @return 结构化日志构造器
+     */
+    public EventBuilder atInfo() {
+        return at(Level.INFO);
+    }
+
+    /**
+     * 返回WARN级别的结构化日志构造器，级别未启用时返回不做任何事的单例。
+     *
+     * @return 结构化日志构造器
+     */
+    public EventBuilder atWarn() {
+        return at(Level.WARN);
+    }
+
+    /**
+     * 返回ERROR级别的结构化日志构造器，级别未启用时返回不做任何事的单例。
+     *
+     * @return 结构化日志构造器
+     */
+    public EventBuilder atError() {
+        return at(Level.ERROR);
+    }
+
+    private EventBuilder at(Level level) {
+        if (!isEnabledFor(level)) {
+            return NoopEventBuilder.INSTANCE;
+        }
+        JsonLogWriter writer = jsonWriter;
+        if (writer != null) {
+            // JSON事件不经过doLog，在这里输出飞行记录器；文本事件由doLog输出
+            dumpFlightRecorder(level);
+            return writer.begin(name, level);
+        }
+        return new TextEventBuilder(this, level);
+    }
+
+    void logStructured(String callerFQCN, Level level, String message, Throwable t) {
+        doLog(callerFQCN, level, message, t);
+    }
+
+    // 先输出飞行记录器中的上下文，再输出ERROR日志本身
+    private static void dumpFlightRecorder(Level level) {
+        if (level.isGreaterOrEqual(Level.ERROR) && FlightRecorder.current() != null) {
+            FlightRecorder.dump();
+        }
+    }
+
+    // 未启用的TRACE/DEBUG日志交给飞行记录器保存，记录器未启用时不做任何事
+    private void record(Level level, String format, Object[] args, Throwable t) {
+        FlightRecorder recorder = FlightRecorder.current();
+        if (recorder != null) {
+            recorder.record(this, level, format, args, t);
+        }
+    }
+
     /**
      * Printing method with support for location information.
      *
@@ -117,7 +335,7 @@ public class EasyLog4jLogger extends MarkerIgnoringBase
                 throw new IllegalStateException("Level number " + level
                         + " is not recognized.");
         }
-        logger.log(callerFQCN, log4jLevel, message, t);
+        doLog(callerFQCN, log4jLevel, message, t);
 
     }
 
@@ -129,11 +347,7 @@ public class EasyLog4jLogger extends MarkerIgnoringBase
      */
     @Override
     public boolean isTraceEnabled() {
-        if (traceCapable) {
-            return logger.isTraceEnabled();
-        } else {
-            return logger.isDebugEnabled();
-        }
+        return isEnabledFor(traceCapable ? Level.TRACE : Level.DEBUG);
     }
 
     /**
@@ -142,8 +356,12 @@ public class EasyLog4jLogger extends MarkerIgnoringBase
      * @param msg - the message object to be logged
      */
     public void trace(String msg) {
-        logger.log(getCallerClassName(), traceCapable ? Level.TRACE : Level.DEBUG, msg,
-                null);
+        if (isTraceEnabled()) {
+            doLog(getCallerClassName(), traceCapable ? Level.TRACE : Level.DEBUG, msg,
+                    null);
+        } else {
+            record(traceCapable ? Level.TRACE : Level.DEBUG, msg, null, null);
+        }
     }
 
     /**
@@ -156,8 +374,10 @@ public class EasyLog4jLogger extends MarkerIgnoringBase
     public void trace(String format, Object arg) {
         if (isTraceEnabled()) {
             FormattingTuple ft = MessageFormatter.format(format, arg);
-            logger.log(getCallerClassName(), traceCapable ? Level.TRACE : Level.DEBUG,
+            doLog(getCallerClassName(), traceCapable ? Level.TRACE : Level.DEBUG,
                     ft.getMessage(), ft.getThrowable());
+        } else if (FlightRecorder.current() != null) {
+            record(traceCapable ? Level.TRACE : Level.DEBUG, format, new Object[]{arg}, null);
         }
     }
 
@@ -172,8 +392,10 @@ public class EasyLog4jLogger extends MarkerIgnoringBase
     public void trace(String format, Object arg1, Object arg2) {
         if (isTraceEnabled()) {
             FormattingTuple ft = MessageFormatter.format(format, arg1, arg2);
-            logger.log(getCallerClassName(), traceCapable ? Level.TRACE : Level.DEBUG, ft
+            doLog(getCallerClassName(), traceCapable ? Level.TRACE : Level.DEBUG, ft
                     .getMessage(), ft.getThrowable());
+        } else if (FlightRecorder.current() != null) {
+            record(traceCapable ? Level.TRACE : Level.DEBUG, format, new Object[]{arg1, arg2}, null);
         }
     }
 
@@ -187,8 +409,10 @@ public class EasyLog4jLogger extends MarkerIgnoringBase
     public void trace(String format, Object... arguments) {
         if (isTraceEnabled()) {
             FormattingTuple ft = MessageFormatter.arrayFormat(format, arguments);
-            logger.log(getCallerClassName(), traceCapable ? Level.TRACE : Level.DEBUG, ft
+            doLog(getCallerClassName(), traceCapable ? Level.TRACE : Level.DEBUG, ft
                     .getMessage(), ft.getThrowable());
+        } else {
+            record(traceCapable ? Level.TRACE : Level.DEBUG, format, arguments, null);
         }
     }
 
@@ -199,8 +423,12 @@ public class EasyLog4jLogger extends MarkerIgnoringBase
      * @param t   the exception (throwable) to log
      */
     public void trace(String msg, Throwable t) {
-        logger.log(getCallerClassName(), traceCapable ? Level.TRACE : Level.DEBUG, msg,
-                t);
+        if (isTraceEnabled()) {
+            doLog(getCallerClassName(), traceCapable ? Level.TRACE : Level.DEBUG, msg,
+                    t);
+        } else {
+            record(traceCapable ? Level.TRACE : Level.DEBUG, msg, null, t);
+        }
     }
 
     /**
@@ -209,7 +437,7 @@ public class EasyLog4jLogger extends MarkerIgnoringBase
      * @return True if this Logger is enabled for level DEBUG, false otherwise.
      */
     public boolean isDebugEnabled() {
-        return logger.isDebugEnabled();
+        return isEnabledFor(Level.DEBUG);
     }
 
     /**
@@ -218,7 +446,11 @@ public class EasyLog4jLogger extends MarkerIgnoringBase
      * @param msg - the message object to be logged
      */
     public void debug(String msg) {
-        logger.log(getCallerClassName(), Level.DEBUG, msg, null);
+        if (isEnabledFor(Level.DEBUG)) {
+            doLog(getCallerClassName(), Level.DEBUG, msg, null);
+        } else {
+            record(Level.DEBUG, msg, null, null);
+        }
     }
 
     /**
@@ -229,10 +461,12 @@ public class EasyLog4jLogger extends MarkerIgnoringBase
      * @param arg    the argument
      */
     public void debug(String format, Object arg) {
-        if (logger.isDebugEnabled()) {
+        if (isEnabledFor(Level.DEBUG)) {
             FormattingTuple ft = MessageFormatter.format(format, arg);
-            logger.log(getCallerClassName(), Level.DEBUG, ft.getMessage(),
+            doLog(getCallerClassName(), Level.DEBUG, ft.getMessage(),
                     ft.getThrowable());
+        } else if (FlightRecorder.current() != null) {
+            record(Level.DEBUG, format, new Object[]{arg}, null);
         }
     }
 
@@ -245,10 +479,12 @@ public class EasyLog4jLogger extends MarkerIgnoringBase
      * @param arg2   the second argument
      */
     public void debug(String format, Object arg1, Object arg2) {
-        if (logger.isDebugEnabled()) {
+        if (isEnabledFor(Level.DEBUG)) {
             FormattingTuple ft = MessageFormatter.format(format, arg1, arg2);
-            logger.log(getCallerClassName(), Level.DEBUG, ft.getMessage(),
+            doLog(getCallerClassName(), Level.DEBUG, ft.getMessage(),
                     ft.getThrowable());
+        } else if (FlightRecorder.current() != null) {
+            record(Level.DEBUG, format, new Object[]{arg1, arg2}, null);
         }
     }
 
@@ -260,10 +496,12 @@ public class EasyLog4jLogger extends MarkerIgnoringBase
      * @param arguments an array of arguments
      */
     public void debug(String format, Object... arguments) {
-        if (logger.isDebugEnabled()) {
+        if (isEnabledFor(Level.DEBUG)) {
             FormattingTuple ft = MessageFormatter.arrayFormat(format, arguments);
-            logger.log(getCallerClassName(), Level.DEBUG, ft.getMessage(),
+            doLog(getCallerClassName(), Level.DEBUG, ft.getMessage(),
                     ft.getThrowable());
+        } else {
+            record(Level.DEBUG, format, arguments, null);
         }
     }
 
@@ -274,7 +512,11 @@ public class EasyLog4jLogger extends MarkerIgnoringBase
      * @param t   the exception (throwable) to log
      */
     public void debug(String msg, Throwable t) {
-        logger.log(getCallerClassName(), Level.DEBUG, msg, t);
+        if (isEnabledFor(Level.DEBUG)) {
+            doLog(getCallerClassName(), Level.DEBUG, msg, t);
+        } else {
+            record(Level.DEBUG, msg, null, t);
+        }
     }
 
     /**
@@ -283,7 +525,7 @@ public class EasyLog4jLogger extends MarkerIgnoringBase
      * @return True if this Logger is enabled for the INFO level, false otherwise.
      */
     public boolean isInfoEnabled() {
-        return logger.isInfoEnabled();
+        return isEnabledFor(Level.INFO);
     }
 
     /**
@@ -292,7 +534,7 @@ public class EasyLog4jLogger extends MarkerIgnoringBase
      * @param msg - the message object to be logged
      */
     public void info(String msg) {
-        logger.log(getCallerClassName(), Level.INFO, msg, null);
+        doLog(getCallerClassName(), Level.INFO, msg, null);
     }
 
     /**
@@ -303,9 +545,9 @@ public class EasyLog4jLogger extends MarkerIgnoringBase
      * @param arg    the argument
      */
     public void info(String format, Object arg) {
-        if (logger.isInfoEnabled()) {
+        if (isEnabledFor(Level.INFO)) {
             FormattingTuple ft = MessageFormatter.format(format, arg);
-            logger.log(getCallerClassName(), Level.INFO, ft.getMessage(),
+            doLog(getCallerClassName(), Level.INFO, ft.getMessage(),
                     ft.getThrowable());
         }
     }
@@ -319,9 +561,9 @@ public class EasyLog4jLogger extends MarkerIgnoringBase
      * @param arg2   the second argument
      */
     public void info(String format, Object arg1, Object arg2) {
-        if (logger.isInfoEnabled()) {
+        if (isEnabledFor(Level.INFO)) {
             FormattingTuple ft = MessageFormatter.format(format, arg1, arg2);
-            logger.log(getCallerClassName(), Level.INFO, ft.getMessage(),
+            doLog(getCallerClassName(), Level.INFO, ft.getMessage(),
                     ft.getThrowable());
         }
     }
@@ -334,9 +576,9 @@ public class EasyLog4jLogger extends MarkerIgnoringBase
      * @param argArray an array of arguments
      */
     public void info(String format, Object... argArray) {
-        if (logger.isInfoEnabled()) {
+        if (isEnabledFor(Level.INFO)) {
             FormattingTuple ft = MessageFormatter.arrayFormat(format, argArray);
-            logger.log(getCallerClassName(), Level.INFO, ft.getMessage(),
+            doLog(getCallerClassName(), Level.INFO, ft.getMessage(),
                     ft.getThrowable());
         }
     }
@@ -348,7 +590,7 @@ public class EasyLog4jLogger extends MarkerIgnoringBase
      * @param t   the exception (throwable) to log
      */
     public void info(String msg, Throwable t) {
-        logger.log(getCallerClassName(), Level.INFO, msg, t);
+        doLog(getCallerClassName(), Level.INFO, msg, t);
     }
 
     /**
@@ -357,7 +599,7 @@ public class EasyLog4jLogger extends MarkerIgnoringBase
      * @return True if this Logger is enabled for the WARN level, false otherwise.
      */
     public boolean isWarnEnabled() {
-        return logger.isEnabledFor(Level.WARN);
+        return isEnabledFor(Level.WARN);
     }
 
     /**
@@ -366,7 +608,7 @@ public class EasyLog4jLogger extends MarkerIgnoringBase
      * @param msg - the message object to be logged
      */
     public void warn(String msg) {
-        logger.log(getCallerClassName(), Level.WARN, msg, null);
+        doLog(getCallerClassName(), Level.WARN, msg, null);
     }
 
     /**
@@ -377,9 +619,9 @@ public class EasyLog4jLogger extends MarkerIgnoringBase
      * @param arg    the argument
      */
     public void warn(String format, Object arg) {
-        if (logger.isEnabledFor(Level.WARN)) {
+        if (isEnabledFor(Level.WARN)) {
             FormattingTuple ft = MessageFormatter.format(format, arg);
-            logger.log(getCallerClassName(), Level.WARN, ft.getMessage(),
+            doLog(getCallerClassName(), Level.WARN, ft.getMessage(),
                     ft.getThrowable());
         }
     }
@@ -393,9 +635,9 @@ public class EasyLog4jLogger extends MarkerIgnoringBase
      * @param arg2   the second argument
      */
     public void warn(String format, Object arg1, Object arg2) {
-        if (logger.isEnabledFor(Level.WARN)) {
+        if (isEnabledFor(Level.WARN)) {
             FormattingTuple ft = MessageFormatter.format(format, arg1, arg2);
-            logger.log(getCallerClassName(), Level.WARN, ft.getMessage(),
+            doLog(getCallerClassName(), Level.WARN, ft.getMessage(),
                     ft.getThrowable());
         }
     }
@@ -408,9 +650,9 @@ public class EasyLog4jLogger extends MarkerIgnoringBase
      * @param argArray an array of arguments
      */
     public void warn(String format, Object... argArray) {
-        if (logger.isEnabledFor(Level.WARN)) {
+        if (isEnabledFor(Level.WARN)) {
             FormattingTuple ft = MessageFormatter.arrayFormat(format, argArray);
-            logger.log(getCallerClassName(), Level.WARN, ft.getMessage(),
+            doLog(getCallerClassName(), Level.WARN, ft.getMessage(),
                     ft.getThrowable());
         }
     }
@@ -422,7 +664,7 @@ public class EasyLog4jLogger extends MarkerIgnoringBase
      * @param t   the exception (throwable) to log
      */
     public void warn(String msg, Throwable t) {
-        logger.log(getCallerClassName(), Level.WARN, msg, t);
+        doLog(getCallerClassName(), Level.WARN, msg, t);
     }
 
     /**
@@ -431,7 +673,7 @@ public class EasyLog4jLogger extends MarkerIgnoringBase
      * @return True if this Logger is enabled for level ERROR, false otherwise.
      */
     public boolean isErrorEnabled() {
-        return logger.isEnabledFor(Level.ERROR);
+        return isEnabledFor(Level.ERROR);
     }
 
     /**
@@ -440,7 +682,7 @@ public class EasyLog4jLogger extends MarkerIgnoringBase
      * @param msg - the message object to be logged
      */
     public void error(String msg) {
-        logger.log(getCallerClassName(), Level.ERROR, msg, null);
+        doLog(getCallerClassName(), Level.ERROR, msg, null);
     }
 
     /**
@@ -451,9 +693,9 @@ public class EasyLog4jLogger extends MarkerIgnoringBase
      * @param arg    the argument
      */
     public void error(String format, Object arg) {
-        if (logger.isEnabledFor(Level.ERROR)) {
+        if (isEnabledFor(Level.ERROR)) {
             FormattingTuple ft = MessageFormatter.format(format, arg);
-            logger.log(getCallerClassName(), Level.ERROR, ft.getMessage(),
+            doLog(getCallerClassName(), Level.ERROR, ft.getMessage(),
                     ft.getThrowable());
         }
     }
@@ -467,9 +709,9 @@ public class EasyLog4jLogger extends MarkerIgnoringBase
      * @param arg2   the second argument
      */
     public void error(String format, Object arg1, Object arg2) {
-        if (logger.isEnabledFor(Level.ERROR)) {
+        if (isEnabledFor(Level.ERROR)) {
             FormattingTuple ft = MessageFormatter.format(format, arg1, arg2);
-            logger.log(getCallerClassName(), Level.ERROR, ft.getMessage(),
+            doLog(getCallerClassName(), Level.ERROR, ft.getMessage(),
                     ft.getThrowable());
         }
     }
@@ -482,9 +724,9 @@ public class EasyLog4jLogger extends MarkerIgnoringBase
      * @param argArray an array of arguments
      */
     public void error(String format, Object... argArray) {
-        if (logger.isEnabledFor(Level.ERROR)) {
+        if (isEnabledFor(Level.ERROR)) {
             FormattingTuple ft = MessageFormatter.arrayFormat(format, argArray);
-            logger.log(getCallerClassName(), Level.ERROR, ft.getMessage(),
+            doLog(getCallerClassName(), Level.ERROR, ft.getMessage(),
                     ft.getThrowable());
         }
     }
@@ -496,7 +738,7 @@ public class EasyLog4jLogger extends MarkerIgnoringBase
      * @param t   the exception (throwable) to log
      */
     public void error(String msg, Throwable t) {
-        logger.log(getCallerClassName(), Level.ERROR, msg, t);
+        doLog(getCallerClassName(), Level.ERROR, msg, t);
     }
 
     /**
@@ -518,4 +760,43 @@ public class EasyLog4jLogger extends MarkerIgnoringBase
         return this.callerClassName;
     }
 
+    private static final class OverrideCache {
+        final LevelOverrides.Node overrides;
+
+        final Level level;
+
+        OverrideCache(LevelOverrides.Node overrides, Level level) {
+            this.overrides = overrides;
+            this.level = level;
+        }
+    }
+
+    private static final class Key {
+        private final String loggerName;
+
+        private final String callerClassName;
+
+        Key(String loggerName, String callerClassName) {
+            this.loggerName = loggerName;
+            this.callerClassName = callerClassName;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return loggerName.equals(key.loggerName) && callerClassName.equals(key.callerClassName);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * loggerName.hashCode() + callerClassName.hashCode();
+        }
+    }
+
 }
@@ -0,0 +1,82 @@
+package com.github.wings27.easylogger;
+
+import org.apache.log4j.PatternLayout;
+import org.apache.log4j.helpers.FormattingInfo;
+import org.apache.log4j.helpers.LogLog;
+import org.apache.log4j.helpers.PatternConverter;
+import org.apache.log4j.helpers.PatternParser;
+import org.apache.log4j.spi.LoggingEvent;
+
+/**
+ * 在log4j PatternLayout的基础上增加%K转换符，用于输出LogContext中的上下文。
+ * %K{key}输出指定key的值，%K输出"{key1=value1, key2=value2}"形式的全部上下文。
+ * %d改由TimestampRenderer渲染，输出与PatternLayout相同，但同一分钟内不再重复格式化日期，也不在共享的DateFormat上加锁，
+ * 已有的log4j.properties只需把layout换成本类即可受益。
+ * Example： log4j.appender.D.layout = com.github.wings27.easylogger.EasyPatternLayout
+ */
+public class EasyPatternLayout extends PatternLayout {
+
+    public EasyPatternLayout() {
+        super();
+    }
+
+    public EasyPatternLayout(String pattern) {
+        super(pattern);
+    }
+
+    @Override
+    protected PatternParser createPatternParser(String pattern) {
+        return new PatternParser(pattern) {
+            @Override
+            protected void finalizeConverter(char c) {
+                if (c == 'K') {
+                    addConverter(new ContextConverter(formattingInfo, extractOption()));
+                } else if (c == 'd') {
+                    addConverter(new DateConverter(formattingInfo, extractOption()));
+                } else {
+                    super.finalizeConverter(c);
+                }
+            }
+        };
+    }
+
+    private static final class DateConverter extends PatternConverter {
+        private final TimestampRenderer renderer;
+
+        DateConverter(FormattingInfo formattingInfo, String dateOption) {
+            super(formattingInfo);
+            String datePattern = PatternRenderer.toDatePattern(dateOption);
+            TimestampRenderer renderer;
+            try {
+                renderer = new TimestampRenderer(datePattern);
+            } catch (IllegalArgumentException e) {
+                // 与PatternLayout一样，非法的日期格式退化为ISO8601
+                LogLog.error("Could not instantiate SimpleDateFormat with " + datePattern, e);
+                renderer = new TimestampRenderer(PatternRenderer.toDatePattern(null));
+            }
+            this.renderer = renderer;
+        }
+
+        @Override
+        protected String convert(LoggingEvent event) {
+            StringBuilder buf = new StringBuilder(32);
+            renderer.append(buf, event.timeStamp);
+            return buf.toString();
+        }
+    }
+
+    private static final class ContextConverter extends PatternConverter {
+        private final String key;
+
+        ContextConverter(FormattingInfo formattingInfo, String key) {
+            super(formattingInfo);
+            this.key = key;
+        }
+
+        @Override
+        protected String convert(LoggingEvent event) {
+            LogContext.Snapshot context = ContextLoggingEvent.contextOf(event);
+            return key == null ? context.toString() : context.get(key);
+        }
+    }
+}
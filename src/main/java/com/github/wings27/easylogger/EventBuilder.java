@@ -0,0 +1,60 @@
+package com.github.wings27.easylogger;
+
+/**
+ * 结构化日志的构造器，以键值对的形式附加字段。
+ * Example： Log.atInfo().kv("orderId", id).kv("ms", 12L).log("paid");
+ * 级别未启用时返回的是不做任何事的单例。构造器可能被池化复用，调用log之后不得再使用该实例。
+ */
+public interface EventBuilder {
+
+    /**
+     * 附加一个对象字段。数值和布尔值按原类型输出，其余对象输出其字符串形式。
+     *
+     * @param key   字段名
+     * @param value 字段值，可以为null
+     * @return 当前构造器
+     */
+    EventBuilder kv(String key, Object value);
+
+    /**
+     * 附加一个整数字段。
+     *
+     * @param key   字段名
+     * @param value 字段值
+     * @return 当前构造器
+     */
+    EventBuilder kv(String key, long value);
+
+    /**
+     * 附加一个浮点数字段。
+     *
+     * @param key   字段名
+     * @param value 字段值
+     * @return 当前构造器
+     */
+    EventBuilder kv(String key, double value);
+
+    /**
+     * 附加一个布尔字段。
+     *
+     * @param key   字段名
+     * @param value 字段值
+     * @return 当前构造器
+     */
+    EventBuilder kv(String key, boolean value);
+
+    /**
+     * 以指定的信息输出日志。
+     *
+     * @param message 日志信息
+     */
+    void log(String message);
+
+    /**
+     * 以指定的信息和异常输出日志。
+     *
+     * @param message 日志信息
+     * @param t       异常，可以为null
+     */
+    void log(String message, Throwable t);
+}
@@ -0,0 +1,147 @@
+package com.github.wings27.easylogger;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LocationInfo;
+import org.apache.log4j.spi.ThrowableInformation;
+import org.slf4j.helpers.FormattingTuple;
+import org.slf4j.helpers.MessageFormatter;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 飞行记录器：把因级别不够而未输出的TRACE/DEBUG日志保存在全局的定长环形缓冲区中。
+ * 记录时只保存format和参数的引用，不做格式化；记录ERROR日志之前，或者调用dump()时，
+ * 才将最近的记录格式化并输出，从而以接近INFO级别的开销在出错时获得DEBUG上下文。
+ * 环形缓冲区不按线程分配，记录过程不加锁。
+ * Example： FlightRecorder.enable(1024);
+ */
+public final class FlightRecorder {
+
+    private static volatile FlightRecorder current;
+
+    private final AtomicReferenceArray<Event> slots;
+
+    private final int mask;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private FlightRecorder(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        this.slots = new AtomicReferenceArray<Event>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * 启用飞行记录器，替换之前的记录器及其中尚未输出的记录。
+     *
+     * @param capacity 保留的最近记录条数，向上取整为2的幂
+     */
+    public static void enable(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        current = new FlightRecorder(capacity);
+    }
+
+    /**
+     * 停用飞行记录器并丢弃尚未输出的记录。
+     */
+    public static void disable() {
+        current = null;
+    }
+
+    /**
+     * 将记录器中尚未输出的记录按时间顺序格式化并输出，之后清空这些记录。
+     * 输出时绕过logger的级别判断，但仍遵守Appender或DirectLogWriter自身的阈值。
+     */
+    public static void dump() {
+        FlightRecorder recorder = current;
+        if (recorder != null) {
+            recorder.flush();
+        }
+    }
+
+    static FlightRecorder current() {
+        return current;
+    }
+
+    void record(EasyLog4jLogger logger, Level level, String format, Object[] args, Throwable t) {
+        long seq = sequence.getAndIncrement();
+        Event event = new Event(seq, logger, level, System.currentTimeMillis(),
+                Thread.currentThread().getName(), format, args, t, LogContext.capture());
+        slots.lazySet((int) (seq & mask), event);
+    }
+
+    private void flush() {
+        long end = sequence.get();
+        long start = Math.max(0, end - slots.length());
+        for (long seq = start; seq < end; seq++) {
+            int index = (int) (seq & mask);
+            Event event = slots.get(index);
+            // 槽位可能已被更新的记录覆盖，或者已被其他线程输出
+            if (event == null || event.seq != seq || !slots.compareAndSet(index, event, null)) {
+                continue;
+            }
+            event.emit();
+        }
+    }
+
+    private static final class Event {
+        final long seq;
+
+        final EasyLog4jLogger logger;
+
+        final Level level;
+
+        final long timeStamp;
+
+        final String threadName;
+
+        final String format;
+
+        final Object[] args;
+
+        final Throwable throwable;
+
+        final LogContext.Snapshot context;
+
+        Event(long seq, EasyLog4jLogger logger, Level level, long timeStamp, String threadName,
+              String format, Object[] args, Throwable throwable, LogContext.Snapshot context) {
+            this.seq = seq;
+            this.logger = logger;
+            this.level = level;
+            this.timeStamp = timeStamp;
+            this.threadName = threadName;
+            this.format = format;
+            this.args = args;
+            this.throwable = throwable;
+            this.context = context;
+        }
+
+        void emit() {
+            String message = format;
+            Throwable t = throwable;
+            if (args != null) {
+                FormattingTuple ft = MessageFormatter.arrayFormat(format, args);
+                message = ft.getMessage();
+                t = ft.getThrowable();
+            }
+
+            DirectLogWriter[] writers = EasyLog4jLogger.getDirectWriters();
+            if (writers.length > 0) {
+                for (DirectLogWriter writer : writers) {
+                    writer.writeRecorded(timeStamp, level, threadName, message, t, context);
+                }
+                return;
+            }
+
+            // 记录时没有采集调用位置，%l输出为空
+            Logger log4jLogger = logger.logger;
+            log4jLogger.callAppenders(new ContextLoggingEvent(logger.getCallerClassName(), log4jLogger, timeStamp,
+                    level, message, threadName, t == null ? null : new ThrowableInformation(t),
+                    new LocationInfo(null, null), context));
+        }
+    }
+}
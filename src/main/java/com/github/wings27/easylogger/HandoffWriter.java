@@ -0,0 +1,238 @@
+package com.github.wings27.easylogger;
+
+import org.apache.log4j.helpers.LogLog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 将渲染好的日志交给后台写线程输出，调用方线程不执行I/O，也不持有任何monitor.
+ * 交接通过预先分配的有界环完成：环中每个槽位是一个持有direct ByteBuffer的ByteSink，
+ * 调用方以CAS申请槽位(claim)，直接渲染进槽位后发布(publish)，写线程按序号顺序取出并合并进批量缓冲区写出。
+ * 交接路径上没有按事件分配的对象，只使用CAS和LockSupport，因此虚拟线程在交接时不会钉住(pin)载体线程。
+ * 环满时调用方以park的方式等待，而不是在monitor上阻塞。
+ */
+final class HandoffWriter {
+
+    private static final int RING_SIZE = 2048;
+
+    private static final int SLOT_SIZE = 256;
+
+    // 槽位的缓冲区因超长日志增长到超过该大小时，写出后换回初始大小，避免环长期占用大量direct内存
+    private static final int MAX_RETAINED_SLOT_SIZE = 4 * 1024;
+
+    private static final int BATCH_BUFFER_SIZE = 64 * 1024;
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private static final long SHUTDOWN_WAIT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final WritableByteChannel channel;
+
+    private final Charset charset;
+
+    private final ByteSink[] slots = new ByteSink[RING_SIZE];
+
+    // 每个槽位最近一次发布的序号
+    private final AtomicLongArray published = new AtomicLongArray(RING_SIZE);
+
+    // 下一个可申请的序号
+    private final AtomicLong claimed = new AtomicLong();
+
+    // 下一个待写出的序号，只由写线程（shutdown时由调用shutdown的线程）修改，小于它的槽位均可重新申请
+    private volatile long consumed;
+
+    private final AtomicBoolean idle = new AtomicBoolean();
+
+    private final AtomicBoolean dropWarned = new AtomicBoolean();
+
+    // 只由写线程访问，shutdown时由调用shutdown的线程在写线程结束后访问
+    private final ByteBuffer batch = ByteBuffer.allocateDirect(BATCH_BUFFER_SIZE);
+
+    private final Thread thread;
+
+    private volatile boolean running = true;
+
+    HandoffWriter(WritableByteChannel channel, Charset charset) {
+        this.channel = channel;
+        this.charset = charset;
+        for (int i = 0; i < RING_SIZE; i++) {
+            slots[i] = new ByteSink(charset, SLOT_SIZE);
+            published.set(i, i - RING_SIZE);
+        }
+        this.thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                drainLoop();
+            }
+        }, "easy-logger-writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * 申请一个已清空的槽位，环满时park等待。申请到的槽位必须通过publish(ByteSink, boolean)发布，
+     * 否则写线程会停在该槽位上。
+     * 写线程已停止（已shutdown或意外退出）时返回null，该事件被丢弃并通过LogLog报告一次。
+     *
+     * @return 槽位，或者null
+     */
+    ByteSink claim() {
+        while (true) {
+            if (!isAccepting()) {
+                drop();
+                return null;
+            }
+            long sequence = claimed.get();
+            if (sequence - consumed >= RING_SIZE) {
+                LockSupport.parkNanos(this, FULL_PARK_NANOS);
+                continue;
+            }
+            if (claimed.compareAndSet(sequence, sequence + 1)) {
+                ByteSink slot = slots[index(sequence)];
+                slot.sequence = sequence;
+                slot.clear();
+                // 与shutdown竞争时，shutdown可能已经不再等待该序号，发布为空事件后放弃
+                if (!running) {
+                    publish(slot, false);
+                    drop();
+                    return null;
+                }
+                return slot;
+            }
+        }
+    }
+
+    /**
+     * 发布claim()申请到的槽位。rendered为false时（例如渲染中途失败）发布为空事件。
+     */
+    void publish(ByteSink slot, boolean rendered) {
+        if (!rendered) {
+            slot.clear();
+        }
+        slot.flip();
+        published.set(index(slot.sequence), slot.sequence);
+        if (idle.get() && idle.compareAndSet(true, false)) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * 把一个已flip的ByteSink的内容拷贝进槽位后发布，sink仍归调用方所有。
+     * 用于内容需要较长时间才能构造完成、不适合直接占用槽位的场景，例如JsonEventBuilder.
+     */
+    void submit(ByteSink sink) {
+        ByteSink slot = claim();
+        if (slot != null) {
+            slot.put(sink.buffer());
+            publish(slot, true);
+        }
+    }
+
+    /**
+     * 停止后台线程并写出所有积压的事件。
+     */
+    void shutdown() {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // 等待已申请到槽位的调用方发布
+        long target = claimed.get();
+        long deadline = System.nanoTime() + SHUTDOWN_WAIT_NANOS;
+        while (true) {
+            drain();
+            if (consumed >= target || System.nanoTime() - deadline > 0) {
+                break;
+            }
+            LockSupport.parkNanos(this, FULL_PARK_NANOS);
+        }
+    }
+
+    private static int index(long sequence) {
+        return (int) (sequence & (RING_SIZE - 1));
+    }
+
+    private boolean isAccepting() {
+        return running && thread.isAlive();
+    }
+
+    private void drop() {
+        if (dropWarned.compareAndSet(false, true)) {
+            LogLog.error("Log writer thread is not running, log events are dropped.");
+        }
+    }
+
+    private void drainLoop() {
+        while (running) {
+            if (drain()) {
+                continue;
+            }
+            idle.set(true);
+            if (published.get(index(consumed)) != consumed && running) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+            idle.set(false);
+        }
+    }
+
+    /**
+     * @return 是否取出了至少一个事件
+     */
+    private boolean drain() {
+        boolean drained = false;
+        long next = consumed;
+        while (published.get(index(next)) == next) {
+            ByteSink slot = slots[index(next)];
+            ByteBuffer bytes = slot.buffer();
+            if (batch.remaining() < bytes.remaining()) {
+                flush();
+            }
+            if (bytes.remaining() > batch.capacity()) {
+                write(bytes);
+            } else {
+                batch.put(bytes);
+            }
+            if (bytes.capacity() > MAX_RETAINED_SLOT_SIZE) {
+                slots[index(next)] = new ByteSink(charset, SLOT_SIZE);
+            }
+            consumed = ++next;
+            drained = true;
+        }
+        flush();
+        return drained;
+    }
+
+    private void flush() {
+        batch.flip();
+        write(batch);
+        batch.clear();
+    }
+
+    /**
+     * 写出bytes中的全部内容。任何异常都只打印错误，保证写线程不会因为channel的异常而退出。
+     */
+    private void write(ByteBuffer bytes) {
+        try {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        } catch (IOException e) {
+            LogLog.error("Failed to write log event.", e);
+        } catch (RuntimeException e) {
+            LogLog.error("Failed to write log event.", e);
+        }
+    }
+}
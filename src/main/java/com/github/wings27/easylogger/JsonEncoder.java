@@ -0,0 +1,106 @@
+package com.github.wings27.easylogger;
+
+/**
+ * 流式JSON编码工具，将值直接写入ByteSink，不创建中间的Map或String.
+ * ByteSink须使用UTF-8字符集。
+ */
+final class JsonEncoder {
+
+    private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+
+    private static final byte[] TRUE = {'t', 'r', 'u', 'e'};
+
+    private static final byte[] FALSE = {'f', 'a', 'l', 's', 'e'};
+
+    private static final byte[] HEX = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
+
+    private JsonEncoder() {
+    }
+
+    static void writeString(ByteSink sink, CharSequence text) {
+        if (text == null) {
+            sink.put(NULL);
+            return;
+        }
+        sink.put((byte) '"');
+        int length = text.length();
+        int run = 0;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') {
+                continue;
+            }
+            sink.put(text, run, i);
+            run = i + 1;
+            sink.put((byte) '\\');
+            switch (c) {
+                case '"':
+                case '\\':
+                    sink.put((byte) c);
+                    break;
+                case '\n':
+                    sink.put((byte) 'n');
+                    break;
+                case '\r':
+                    sink.put((byte) 'r');
+                    break;
+                case '\t':
+                    sink.put((byte) 't');
+                    break;
+                case '\b':
+                    sink.put((byte) 'b');
+                    break;
+                case '\f':
+                    sink.put((byte) 'f');
+                    break;
+                default:
+                    sink.put((byte) 'u');
+                    sink.put((byte) '0');
+                    sink.put((byte) '0');
+                    sink.put(HEX[c >> 4]);
+                    sink.put(HEX[c & 0xF]);
+            }
+        }
+        sink.put(text, run, length);
+        sink.put((byte) '"');
+    }
+
+    static void writeLong(ByteSink sink, long value) {
+        sink.putDecimal(value);
+    }
+
+    static void writeDouble(ByteSink sink, double value) {
+        // JSON不能表示NaN和Infinity，以字符串输出
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            writeString(sink, Double.toString(value));
+        } else if (value == (long) value && Math.abs(value) < 1e15) {
+            sink.putDecimal((long) value);
+        } else {
+            sink.put(Double.toString(value));
+        }
+    }
+
+    static void writeBoolean(ByteSink sink, boolean value) {
+        sink.put(value ? TRUE : FALSE);
+    }
+
+    /**
+     * 按值的类型选择编码方式：数值和布尔值原样输出，其余对象输出其toString()的字符串形式。
+     */
+    static void writeValue(ByteSink sink, Object value) {
+        if (value == null) {
+            sink.put(NULL);
+        } else if (value instanceof Long || value instanceof Integer
+                || value instanceof Short || value instanceof Byte) {
+            sink.putDecimal(((Number) value).longValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            writeDouble(sink, ((Number) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            writeBoolean(sink, (Boolean) value);
+        } else if (value instanceof CharSequence) {
+            writeString(sink, (CharSequence) value);
+        } else {
+            writeString(sink, value.toString());
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.github.wings27.easylogger;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.spi.ThrowableInformation;
+
+/**
+ * 设置了JsonLogWriter时使用的EventBuilder. 公共字段和LogContext中的上下文在取得构造器时写入，之后每个键值对
+ * 都直接编码进ByteSink，log时补全信息字段并交给JsonLogWriter写出一行JSON.
+ * 实例由JsonLogWriter池化复用。
+ */
+final class JsonEventBuilder implements EventBuilder {
+
+    private static final byte[] TS_FIELD = bytes("{\"ts\":");
+
+    private static final byte[] LEVEL_FIELD = bytes(",\"level\":");
+
+    private static final byte[] THREAD_FIELD = bytes(",\"thread\":");
+
+    private static final byte[] LOGGER_FIELD = bytes(",\"logger\":");
+
+    private static final byte[] MESSAGE_FIELD = bytes(",\"msg\":");
+
+    private static final byte[] EXCEPTION_FIELD = bytes(",\"exception\":");
+
+    private static final byte[] END = bytes("}\n");
+
+    // 与公共字段同名的上下文key和kv字段名加上该前缀，避免同一行JSON中出现重复的key
+    private static final String RESERVED_PREFIX = "_";
+
+    private static final String[] RESERVED_KEYS = {"ts", "level", "thread", "logger", "msg", "exception"};
+
+    private final JsonLogWriter writer;
+
+    private ByteSink sink;
+
+    JsonEventBuilder(JsonLogWriter writer) {
+        this.writer = writer;
+    }
+
+    private static byte[] bytes(String ascii) {
+        byte[] result = new byte[ascii.length()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = (byte) ascii.charAt(i);
+        }
+        return result;
+    }
+
+    void begin(ByteSink sink, String loggerName, Level level) {
+        this.sink = sink;
+        sink.put(TS_FIELD);
+        JsonEncoder.writeLong(sink, System.currentTimeMillis());
+        sink.put(LEVEL_FIELD);
+        JsonEncoder.writeString(sink, level.toString());
+        sink.put(THREAD_FIELD);
+        JsonEncoder.writeString(sink, Thread.currentThread().getName());
+        sink.put(LOGGER_FIELD);
+        JsonEncoder.writeString(sink, loggerName);
+
+        LogContext.Snapshot context = LogContext.capture();
+        for (int i = 0; i < context.size(); i++) {
+            key(context.keyAt(i));
+            JsonEncoder.writeString(sink, context.valueAt(i));
+        }
+    }
+
+    private void key(String key) {
+        sink.put((byte) ',');
+        JsonEncoder.writeString(sink, isReserved(key) ? RESERVED_PREFIX + key : key);
+        sink.put((byte) ':');
+    }
+
+    private static boolean isReserved(String key) {
+        for (String reserved : RESERVED_KEYS) {
+            if (reserved.equals(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public EventBuilder kv(String key, Object value) {
+        key(key);
+        JsonEncoder.writeValue(sink, value);
+        return this;
+    }
+
+    @Override
+    public EventBuilder kv(String key, long value) {
+        key(key);
+        JsonEncoder.writeLong(sink, value);
+        return this;
+    }
+
+    @Override
+    public EventBuilder kv(String key, double value) {
+        key(key);
+        JsonEncoder.writeDouble(sink, value);
+        return this;
+    }
+
+    @Override
+    public EventBuilder kv(String key, boolean value) {
+        key(key);
+        JsonEncoder.writeBoolean(sink, value);
+        return this;
+    }
+
+    @Override
+    public void log(String message) {
+        log(message, null);
+    }
+
+    @Override
+    public void log(String message, Throwable t) {
+        ByteSink completed = sink;
+        sink = null;
+
+        completed.put(MESSAGE_FIELD);
+        JsonEncoder.writeString(completed, message);
+        if (t != null) {
+            completed.put(EXCEPTION_FIELD);
+            completed.put((byte) '[');
+            String[] lines = new ThrowableInformation(t).getThrowableStrRep();
+            for (int i = 0; i < lines.length; i++) {
+                if (i > 0) {
+                    completed.put((byte) ',');
+                }
+                JsonEncoder.writeString(completed, lines[i]);
+            }
+            completed.put((byte) ']');
+        }
+        completed.put(END);
+
+        writer.complete(this, completed);
+    }
+}
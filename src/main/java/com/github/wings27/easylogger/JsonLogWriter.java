@@ -0,0 +1,71 @@
+package com.github.wings27.easylogger;
+
+import org.apache.log4j.Level;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+
+/**
+ * 结构化日志的输出后端，每条日志输出为一行UTF-8编码的JSON (JSON Lines).
+ * 每行包含ts、level、thread、logger、msg字段、通过EventBuilder附加的字段，以及可选的exception字段。
+ * 与这些公共字段同名的上下文key和附加字段输出时加上"_"前缀，例如"_msg".
+ * 通过EasyLog4jLogger.setJsonWriter(JsonLogWriter)启用，级别判断优先采用LevelOverrides中的覆盖级别，其次为log4j配置。
+ */
+public class JsonLogWriter implements Closeable {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int INITIAL_BUFFER_SIZE = 512;
+
+    private final LogOutput output;
+
+    private final BoundedPool<JsonEventBuilder> builders = new BoundedPool<JsonEventBuilder>() {
+        @Override
+        protected JsonEventBuilder create() {
+            return new JsonEventBuilder(JsonLogWriter.this);
+        }
+    };
+
+    /**
+     * 以追加方式打开指定文件。
+     *
+     * @param fileName 日志文件名
+     * @throws IOException 打开文件失败时
+     */
+    public JsonLogWriter(String fileName) throws IOException {
+        this(DirectLogWriter.openAppend(fileName), false);
+    }
+
+    /**
+     * 由指定的channel构造实例。
+     *
+     * @param channel 输出channel，所有权转移给本实例
+     * @param async   是否由后台线程执行I/O，含义与DirectLogWriter相同
+     */
+    public JsonLogWriter(WritableByteChannel channel, boolean async) {
+        this.output = new LogOutput(channel, UTF_8, INITIAL_BUFFER_SIZE, async);
+    }
+
+    EventBuilder begin(String loggerName, Level level) {
+        JsonEventBuilder builder = builders.acquire();
+        builder.begin(output.acquire(), loggerName, level);
+        return builder;
+    }
+
+    void complete(JsonEventBuilder builder, ByteSink sink) {
+        builders.release(builder);
+        output.write(sink);
+    }
+
+    /**
+     * 关闭底层channel. 异步模式下先等待积压的日志全部写出。
+     *
+     * @throws IOException 关闭失败时
+     */
+    @Override
+    public void close() throws IOException {
+        output.close();
+    }
+}
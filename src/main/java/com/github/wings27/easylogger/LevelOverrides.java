@@ -0,0 +1,218 @@
+package com.github.wings27.easylogger;
+
+import org.apache.log4j.Level;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 运行时按包名覆盖日志级别的注册表，优先于log4j配置生效。
+ * 覆盖规则保存在按包名分段组织的不可变前缀树中，修改时复制受影响的路径并整体替换，
+ * 查找沿loggerName逐段向下，取最深一层的覆盖级别，复杂度与包的层数成正比。
+ * EasyLog4jLogger缓存自身的查找结果，前缀树被替换后在下一次级别判断时重新查找，整个过程不加锁。
+ * Example： LevelOverrides.setLevel("com.acme.payments", Level.DEBUG);
+ */
+public final class LevelOverrides {
+
+    /**
+     * 注册MBean时使用的ObjectName.
+     */
+    public static final String OBJECT_NAME = "com.github.wings27.easylogger:type=LevelOverrides";
+
+    private static final AtomicReference<Node> root = new AtomicReference<Node>(Node.EMPTY);
+
+    private LevelOverrides() {
+    }
+
+    /**
+     * 为指定的包（或logger名）及其所有子包设置覆盖级别。
+     *
+     * @param packageName 包名，空字符串表示所有logger
+     * @param level       覆盖级别
+     */
+    public static void setLevel(String packageName, Level level) {
+        if (level == null) {
+            throw new IllegalArgumentException("Level must not be null.");
+        }
+        update(packageName, level);
+    }
+
+    /**
+     * 移除指定包上的覆盖级别，其子包上单独设置的覆盖级别不受影响。
+     *
+     * @param packageName 包名，空字符串表示所有logger
+     */
+    public static void clearLevel(String packageName) {
+        update(packageName, null);
+    }
+
+    /**
+     * 移除所有覆盖级别。
+     */
+    public static void clearAll() {
+        root.set(Node.EMPTY);
+    }
+
+    /**
+     * 返回对指定logger生效的覆盖级别。
+     *
+     * @param loggerName logger名
+     * @return 覆盖级别，没有覆盖时返回null
+     */
+    public static Level getLevel(String loggerName) {
+        return find(root.get(), loggerName);
+    }
+
+    /**
+     * 返回当前所有的覆盖规则。
+     *
+     * @return 包名到覆盖级别的只读映射，按包名排序
+     */
+    public static Map<String, Level> getOverrides() {
+        Map<String, Level> overrides = new TreeMap<String, Level>();
+        collect(root.get(), "", overrides);
+        return Collections.unmodifiableMap(overrides);
+    }
+
+    /**
+     * 将注册表以OBJECT_NAME注册到平台MBeanServer，以便通过JMX修改级别。
+     *
+     * @throws JMException 注册失败时
+     */
+    public static void registerMBean() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        if (!server.isRegistered(name)) {
+            server.registerMBean(new StandardMBean(new Management(), LevelOverridesMBean.class), name);
+        }
+    }
+
+    /**
+     * 返回当前的前缀树。前缀树不可变，可以用引用是否相同判断覆盖规则是否发生过变化。
+     */
+    static Node snapshot() {
+        return root.get();
+    }
+
+    static Level find(Node node, String loggerName) {
+        Level level = node.level;
+        int start = 0;
+        int length = loggerName.length();
+        while (start < length && !node.children.isEmpty()) {
+            int end = loggerName.indexOf('.', start);
+            if (end < 0) {
+                end = length;
+            }
+            node = node.children.get(loggerName.substring(start, end));
+            if (node == null) {
+                break;
+            }
+            if (node.level != null) {
+                level = node.level;
+            }
+            start = end + 1;
+        }
+        return level;
+    }
+
+    private static void update(String packageName, Level level) {
+        String[] segments = packageName.isEmpty() ? new String[0] : packageName.split("\\.");
+        while (true) {
+            Node current = root.get();
+            if (root.compareAndSet(current, current.with(segments, 0, level))) {
+                return;
+            }
+        }
+    }
+
+    private static void collect(Node node, String prefix, Map<String, Level> overrides) {
+        if (node.level != null) {
+            overrides.put(prefix, node.level);
+        }
+        for (Map.Entry<String, Node> child : node.children.entrySet()) {
+            collect(child.getValue(), prefix.isEmpty() ? child.getKey() : prefix + '.' + child.getKey(),
+                    overrides);
+        }
+    }
+
+    /**
+     * 前缀树的不可变节点，每个节点对应包名中的一段。
+     */
+    static final class Node {
+        static final Node EMPTY = new Node(null, Collections.<String, Node>emptyMap());
+
+        final Level level;
+
+        final Map<String, Node> children;
+
+        private Node(Level level, Map<String, Node> children) {
+            this.level = level;
+            this.children = children;
+        }
+
+        /**
+         * 返回将segments[index..]路径上的覆盖级别设为level后的新节点，只复制该路径上的节点。
+         */
+        Node with(String[] segments, int index, Level level) {
+            if (index == segments.length) {
+                return new Node(level, children);
+            }
+            Node child = children.get(segments[index]);
+            Node updated = (child == null ? EMPTY : child).with(segments, index + 1, level);
+
+            Map<String, Node> copy = new HashMap<String, Node>(children);
+            if (updated.level == null && updated.children.isEmpty()) {
+                copy.remove(segments[index]);
+            } else {
+                copy.put(segments[index], updated);
+            }
+            return new Node(this.level, copy.isEmpty() ? Collections.<String, Node>emptyMap() : copy);
+        }
+    }
+
+    private static final class Management implements LevelOverridesMBean {
+        @Override
+        public void setLevel(String packageName, String level) {
+            Level parsed = Level.toLevel(level, null);
+            if (parsed == null) {
+                throw new IllegalArgumentException("Unknown level: " + level);
+            }
+            LevelOverrides.setLevel(packageName, parsed);
+        }
+
+        @Override
+        public void clearLevel(String packageName) {
+            LevelOverrides.clearLevel(packageName);
+        }
+
+        @Override
+        public void clearAll() {
+            LevelOverrides.clearAll();
+        }
+
+        @Override
+        public String getLevel(String loggerName) {
+            Level level = LevelOverrides.getLevel(loggerName);
+            return level == null ? null : level.toString();
+        }
+
+        @Override
+        public String[] getOverrides() {
+            Map<String, Level> overrides = LevelOverrides.getOverrides();
+            String[] result = new String[overrides.size()];
+            int i = 0;
+            for (Map.Entry<String, Level> entry : overrides.entrySet()) {
+                result[i++] = entry.getKey() + '=' + entry.getValue();
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.github.wings27.easylogger;
+
+/**
+ * LevelOverrides的JMX管理接口，级别以log4j的级别名表示，例如"DEBUG".
+ */
+public interface LevelOverridesMBean {
+
+    /**
+     * 为指定的包及其所有子包设置覆盖级别。
+     *
+     * @param packageName 包名，空字符串表示所有logger
+     * @param level       级别名
+     */
+    void setLevel(String packageName, String level);
+
+    /**
+     * 移除指定包上的覆盖级别。
+     *
+     * @param packageName 包名，空字符串表示所有logger
+     */
+    void clearLevel(String packageName);
+
+    /**
+     * 移除所有覆盖级别。
+     */
+    void clearAll();
+
+    /**
+     * 返回对指定logger生效的覆盖级别。
+     *
+     * @param loggerName logger名
+     * @return 级别名，没有覆盖时返回null
+     */
+    String getLevel(String loggerName);
+
+    /**
+     * 返回当前所有的覆盖规则，格式为"包名=级别名".
+     *
+     * @return 覆盖规则
+     */
+    String[] getOverrides();
+}
@@ -1,7 +1,6 @@
 package com.github.wings27.easylogger;
 
-import org.slf4j.Logger;
-
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
@@ -16,7 +15,8 @@ import java.util.concurrent.ConcurrentMap;
  */
 public final class Log {
 
-    private static final ConcurrentMap<String, Logger> loggerCache = new ConcurrentHashMap<String, Logger>();
+    private static final ConcurrentMap<String, EasyLog4jLogger> loggerCache =
+            new ConcurrentHashMap<String, EasyLog4jLogger>();
 
     /**
      * Log a message object at level TRACE.
@@ -328,6 +328,53 @@ public final class Log {
         return loadLogger().isErrorEnabled();
     }
 
+    /**
+     * 返回TRACE级别的结构化日志构造器，级别未启用时返回不做任何事的单例。
+     * Example： Log.atTrace().kv("key", value).log("message");
+     *
+     * @return 结构化日志构造器
+     */
+    public static EventBuilder atTrace() {
+        return loadLogger().atTrace();
+    }
+
+    /**
+     * 返回DEBUG级别的结构化日志构造器，级别未启用时返回不做任何事的单例。
+     *
+     * @return 结构化日志构造器
+     */
+    public static EventBuilder atDebug() {
+        return loadLogger().atDebug();
+    }
+
+    /**
+     * 返回INFO级别的结构化日志构造器，级别未启用时返回不做任何事的单例。
+     * Example： Log.atInfo().kv("orderId", id).kv("ms", 12L).log("paid");
+     *
+     * @return 结构化日志构造器
+     */
+    public static EventBuilder atInfo() {
+        return loadLogger().atInfo();
+    }
+
+    /**
+     * 返回WARN级别的结构化日志构造器，级别未启用时返回不做任何事的单例。
+     *
+     * @return 结构化日志构造器
+     */
+    public static EventBuilder atWarn() {
+        return loadLogger().atWarn();
+    }
+
+    /**
+     * 返回ERROR级别的结构化日志构造器，级别未启用时返回不做任何事的单例。
+     *
+     * @return 结构化日志构造器
+     */
+    public static EventBuilder atError() {
+        return loadLogger().atError();
+    }
+
     private static String getInvokerClassName() {
         StackTraceElement stacks[] = Thread.currentThread().getStackTrace();
 
@@ -346,17 +393,29 @@ public final class Log {
         return Log.class.getName();
     }
 
-    private static Logger loadLogger() {
-        String className = getInvokerClassName();
+    /**
+     * @return 当前已缓存logger的调用类名，供LogWarmup记录
+     */
+    static Set<String> cachedClassNames() {
+        return loggerCache.keySet();
+    }
+
+    private static EasyLog4jLogger loadLogger() {
+        return loadLogger(getInvokerClassName());
+    }
 
-        Logger logger = loggerCache.get(className);
+    /**
+     * 返回调用类className对应的logger，不存在时创建并放入cache. LogWarmup以此在启动时预先填充cache.
+     */
+    static EasyLog4jLogger loadLogger(String className) {
+        EasyLog4jLogger logger = loggerCache.get(className);
         if (logger != null) {
             return logger;
         }
 
         // 放入新的logger到原cache中
-        logger = new EasyLog4jLogger(className, Log.class.getName());
-        Logger oldLogger = loggerCache.putIfAbsent(className, logger);
+        logger = EasyLog4jLogger.getInstance(className, Log.class.getName());
+        EasyLog4jLogger oldLogger = loggerCache.putIfAbsent(className, logger);
 
         return oldLogger == null ? logger : oldLogger;
     }
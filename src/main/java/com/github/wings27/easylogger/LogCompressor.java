@@ -0,0 +1,292 @@
+package com.github.wings27.easylogger;
+
+import org.apache.log4j.helpers.LogLog;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 在低优先级的后台线程中压缩滚动出的日志文件，并按保留策略清理旧文件。
+ * 压缩使用gzip的最快压缩级别，读写速度受每秒字节数预算限制，避免与应用争抢I/O.
+ * 保留策略同时支持按文件年龄和按总大小清理，只作用于同一日志文件滚动出的文件。
+ */
+public class LogCompressor implements Closeable {
+
+    private static final String GZIP_SUFFIX = ".gz";
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private static final Task STOP = new Task(null, null, null);
+
+    // close()等待后台线程处理完已提交文件的最长时间，超时后中断当前的压缩
+    private static final long CLOSE_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    private final long bytesPerSecond;
+
+    private final long maxAgeMillis;
+
+    private final long maxTotalBytes;
+
+    private final BlockingQueue<Task> queue = new LinkedBlockingQueue<Task>();
+
+    // 已提交但尚未压缩完成的文件，保留策略不会删除它们
+    private final Set<File> queued = Collections.newSetFromMap(new ConcurrentHashMap<File, Boolean>());
+
+    private final Thread thread;
+
+    private volatile boolean closed;
+
+    /**
+     * @param bytesPerSecond 压缩时每秒读取的字节数上限，0表示不限制
+     * @param maxAgeMillis   滚动文件的最长保留时间（毫秒），0表示不按年龄清理
+     * @param maxTotalBytes  滚动文件的总大小上限，超过时从最旧的文件开始删除，0表示不按大小清理
+     */
+    public LogCompressor(long bytesPerSecond, long maxAgeMillis, long maxTotalBytes) {
+        this.bytesPerSecond = bytesPerSecond;
+        this.maxAgeMillis = maxAgeMillis;
+        this.maxTotalBytes = maxTotalBytes;
+        this.thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                processLoop();
+            }
+        }, "easy-logger-compressor");
+        this.thread.setDaemon(true);
+        this.thread.setPriority(Thread.MIN_PRIORITY);
+        this.thread.start();
+    }
+
+    /**
+     * 提交一个已滚动的文件，压缩完成后删除原文件并执行保留策略。该方法不阻塞。
+     * close()之后提交的文件不会被处理，保持未压缩的状态，由下次启动时的submitUncompressed处理。
+     *
+     * @param rolled      滚动出的文件
+     * @param activeName  当前日志文件的文件名
+     * @param datePattern 滚动文件名后缀的格式，保留策略只清理activeName加上该格式的后缀（以及.gz）的文件
+     */
+    void submit(File rolled, String activeName, String datePattern) {
+        if (closed) {
+            LogLog.warn("Compressor is closed, " + rolled + " is left uncompressed.");
+            return;
+        }
+        queued.add(rolled.getAbsoluteFile());
+        queue.offer(new Task(rolled, activeName, datePattern));
+    }
+
+    /**
+     * 提交directory中由activeName滚动出、尚未压缩的文件，用于上次运行在压缩完成前退出的情况。
+     *
+     * @param directory   滚动文件所在目录
+     * @param activeName  当前日志文件的文件名
+     * @param datePattern 滚动文件名后缀的格式
+     */
+    void submitUncompressed(File directory, String activeName, String datePattern) {
+        File[] candidates = directory == null ? null : directory.listFiles();
+        if (candidates == null) {
+            return;
+        }
+        Task matcher = new Task(null, activeName, datePattern);
+        for (File file : candidates) {
+            String name = file.getName();
+            if (file.isFile() && !name.endsWith(GZIP_SUFFIX) && matcher.isRolledName(name)) {
+                submit(file, activeName, datePattern);
+            }
+        }
+    }
+
+    /**
+     * 处理完已提交的文件后停止后台线程，最多等待CLOSE_TIMEOUT_MILLIS.
+     * 超时后中断后台线程，正在压缩的文件保持未压缩的状态，尚未处理的文件留待下次启动时处理。
+     */
+    @Override
+    public void close() {
+        closed = true;
+        queue.offer(STOP);
+        try {
+            thread.join(CLOSE_TIMEOUT_MILLIS);
+            if (thread.isAlive()) {
+                LogLog.warn("Log compressor did not finish in " + CLOSE_TIMEOUT_MILLIS + "ms, interrupting.");
+                thread.interrupt();
+                thread.join(CLOSE_TIMEOUT_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            thread.interrupt();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void processLoop() {
+        while (true) {
+            Task task;
+            try {
+                task = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (task == STOP) {
+                return;
+            }
+            try {
+                compress(task.rolled);
+            } catch (IOException e) {
+                LogLog.error("Failed to compress " + task.rolled, e);
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                queued.remove(task.rolled.getAbsoluteFile());
+            }
+            applyRetention(task);
+        }
+    }
+
+    /**
+     * 压缩rolled并删除原文件。中途失败或被中断时删除不完整的压缩文件，原文件保持不变。
+     */
+    private void compress(File rolled) throws IOException, InterruptedException {
+        File compressed = new File(rolled.getPath() + GZIP_SUFFIX);
+        boolean completed = false;
+        InputStream in = new FileInputStream(rolled);
+        try {
+            OutputStream file = new FileOutputStream(compressed);
+            OutputStream out = file;
+            try {
+                out = new GZIPOutputStream(file, CHUNK_SIZE) {
+                    {
+                        def.setLevel(Deflater.BEST_SPEED);
+                    }
+                };
+                byte[] buffer = new byte[CHUNK_SIZE];
+                long start = System.nanoTime();
+                long total = 0;
+                int read;
+                while ((read = in.read(buffer)) > 0) {
+                    out.write(buffer, 0, read);
+                    total += read;
+                    throttle(start, total);
+                }
+            } finally {
+                out.close();
+            }
+            completed = true;
+        } finally {
+            in.close();
+            if (!completed && compressed.exists() && !compressed.delete()) {
+                LogLog.warn("Failed to delete incomplete " + compressed);
+            }
+        }
+        compressed.setLastModified(rolled.lastModified());
+        if (!rolled.delete()) {
+            LogLog.warn("Failed to delete " + rolled + " after compression.");
+        }
+    }
+
+    private void throttle(long start, long total) throws InterruptedException {
+        // 不限速时不会sleep，需要主动响应close()的中断
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        if (bytesPerSecond <= 0) {
+            return;
+        }
+        long expectedNanos = TimeUnit.SECONDS.toNanos(1) * total / bytesPerSecond;
+        long aheadNanos = expectedNanos - (System.nanoTime() - start);
+        if (aheadNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(aheadNanos);
+        }
+    }
+
+    /**
+     * 清理与rolled同目录、由同一RollingFileChannel滚动出的文件（包括已压缩和未压缩的），仍在等待压缩的文件除外。
+     */
+    private void applyRetention(Task task) {
+        if (maxAgeMillis <= 0 && maxTotalBytes <= 0) {
+            return;
+        }
+        File directory = task.rolled.getAbsoluteFile().getParentFile();
+        File[] candidates = directory == null ? null : directory.listFiles();
+        if (candidates == null) {
+            return;
+        }
+
+        List<File> files = new ArrayList<File>();
+        for (File file : candidates) {
+            if (file.isFile() && task.isRolledName(file.getName()) && !queued.contains(file.getAbsoluteFile())) {
+                files.add(file);
+            }
+        }
+        // 从新到旧排序
+        File[] sorted = files.toArray(new File[files.size()]);
+        Arrays.sort(sorted, new Comparator<File>() {
+            @Override
+            public int compare(File f1, File f2) {
+                long diff = f2.lastModified() - f1.lastModified();
+                return diff > 0 ? 1 : diff < 0 ? -1 : 0;
+            }
+        });
+
+        long now = System.currentTimeMillis();
+        long totalBytes = 0;
+        for (File file : sorted) {
+            totalBytes += file.length();
+            boolean expired = maxAgeMillis > 0 && now - file.lastModified() > maxAgeMillis;
+            boolean oversize = maxTotalBytes > 0 && totalBytes > maxTotalBytes;
+            if ((expired || oversize) && !file.delete()) {
+                LogLog.warn("Failed to delete expired log file " + file);
+            }
+        }
+    }
+
+    private static final class Task {
+
+        final File rolled;
+
+        final String activeName;
+
+        // 只在压缩线程中使用
+        final SimpleDateFormat dateFormat;
+
+        Task(File rolled, String activeName, String datePattern) {
+            this.rolled = rolled;
+            this.activeName = activeName;
+            this.dateFormat = datePattern == null ? null : new SimpleDateFormat(datePattern);
+            if (dateFormat != null) {
+                dateFormat.setLenient(false);
+            }
+        }
+
+        /**
+         * @return name是否为activeName加上能被dateFormat完整解析的后缀，可选地以.gz结尾
+         */
+        boolean isRolledName(String name) {
+            if (!name.startsWith(activeName)) {
+                return false;
+            }
+            String suffix = name.substring(activeName.length());
+            if (suffix.endsWith(GZIP_SUFFIX)) {
+                suffix = suffix.substring(0, suffix.length() - GZIP_SUFFIX.length());
+            }
+            ParsePosition position = new ParsePosition(0);
+            return !suffix.isEmpty() && dateFormat.parse(suffix, position) != null
+                    && position.getIndex() == suffix.length();
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.github.wings27.easylogger;
+
+import org.apache.log4j.helpers.LogLog;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 轻量的日志上下文（类似MDC），例如请求ID. 每个线程持有一个不可变的Snapshot，
+ * 内部以定长的key/value数组保存，修改时复制数组并替换（copy-on-write）。
+ * 因此capture()只是一次引用拷贝，可以廉价地把上下文交给其他线程、executor任务或虚拟线程。
+ * 在pattern中以%K{key}输出指定key的值，%K输出全部上下文，参见PatternRenderer和EasyPatternLayout.
+ * Example： LogContext.put("requestId", id);
+ */
+public final class LogContext {
+
+    /**
+     * 每个线程最多保存的key数量。
+     */
+    public static final int MAX_SLOTS = 16;
+
+    private static final ThreadLocal<Snapshot> current = new ThreadLocal<Snapshot>();
+
+    private static final AtomicBoolean overflowWarned = new AtomicBoolean();
+
+    private LogContext() {
+    }
+
+    /**
+     * 在当前线程的上下文中设置key对应的值。
+     * key的数量已达到MAX_SLOTS时新的key被忽略（已有key的值仍可修改），并通过LogLog报告一次，不影响调用方。
+     *
+     * @param key   key
+     * @param value 值，为null时等同于remove(key)
+     */
+    public static void put(String key, String value) {
+        if (value == null) {
+            remove(key);
+            return;
+        }
+        Snapshot snapshot = capture();
+        Snapshot updated = snapshot.with(key, value);
+        if (updated == null) {
+            if (overflowWarned.compareAndSet(false, true)) {
+                LogLog.warn("Log context is limited to " + MAX_SLOTS + " keys, key " + key + " is dropped.");
+            }
+            return;
+        }
+        current.set(updated);
+    }
+
+    /**
+     * 返回当前线程的上下文中key对应的值。
+     *
+     * @param key key
+     * @return 对应的值，不存在时返回null
+     */
+    public static String get(String key) {
+        return capture().get(key);
+    }
+
+    /**
+     * 从当前线程的上下文中移除key.
+     *
+     * @param key key
+     */
+    public static void remove(String key) {
+        Snapshot snapshot = capture().without(key);
+        current.set(snapshot.size() == 0 ? null : snapshot);
+    }
+
+    /**
+     * 清空当前线程的上下文。
+     */
+    public static void clear() {
+        current.remove();
+    }
+
+    /**
+     * 返回当前线程上下文的不可变快照，开销为一次引用拷贝。
+     *
+     * @return 上下文快照，从不为null
+     */
+    public static Snapshot capture() {
+        Snapshot snapshot = current.get();
+        return snapshot == null ? Snapshot.EMPTY : snapshot;
+    }
+
+    /**
+     * 以snapshot替换当前线程的上下文。
+     *
+     * @param snapshot 上下文快照，为null时清空上下文
+     */
+    public static void restore(Snapshot snapshot) {
+        if (snapshot == null || snapshot.size() == 0) {
+            current.remove();
+        } else {
+            current.set(snapshot);
+        }
+    }
+
+    /**
+     * 包装task，使其在执行时使用调用wrap时的上下文，执行完毕后恢复执行线程原有的上下文。
+     *
+     * @param task 要包装的任务
+     * @return 包装后的任务
+     */
+    public static Runnable wrap(final Runnable task) {
+        final Snapshot captured = capture();
+        return new Runnable() {
+            @Override
+            public void run() {
+                Snapshot previous = capture();
+                restore(captured);
+                try {
+                    task.run();
+                } finally {
+                    restore(previous);
+                }
+            }
+        };
+    }
+
+    /**
+     * 包装task，使其在执行时使用调用wrap时的上下文，执行完毕后恢复执行线程原有的上下文。
+     *
+     * @param task 要包装的任务
+     * @param <V>  任务的返回值类型
+     * @return 包装后的任务
+     */
+    public static <V> Callable<V> wrap(final Callable<V> task) {
+        final Snapshot captured = capture();
+        return new Callable<V>() {
+            @Override
+            public V call() throws Exception {
+                Snapshot previous = capture();
+                restore(captured);
+                try {
+                    return task.call();
+                } finally {
+                    restore(previous);
+                }
+            }
+        };
+    }
+
+    /**
+     * 包装executor，使提交给它的任务在执行时使用提交时的上下文。
+     *
+     * @param executor 要包装的executor
+     * @return 包装后的executor
+     */
+    public static Executor wrap(final Executor executor) {
+        return new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                executor.execute(wrap(command));
+            }
+        };
+    }
+
+    /**
+     * 日志上下文的不可变快照。
+     */
+    public static final class Snapshot {
+
+        static final Snapshot EMPTY = new Snapshot(new String[0], new String[0]);
+
+        private final String[] keys;
+
+        private final String[] values;
+
+        private Snapshot(String[] keys, String[] values) {
+            this.keys = keys;
+            this.values = values;
+        }
+
+        /**
+         * 返回key对应的值。
+         *
+         * @param key key
+         * @return 对应的值，不存在时返回null
+         */
+        public String get(String key) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i].equals(key)) {
+                    return values[i];
+                }
+            }
+            return null;
+        }
+
+        /**
+         * @return 快照中key的数量
+         */
+        public int size() {
+            return keys.length;
+        }
+
+        String keyAt(int index) {
+            return keys[index];
+        }
+
+        String valueAt(int index) {
+            return values[index];
+        }
+
+        /**
+         * @return 设置后的快照，key的数量已达到MAX_SLOTS且key不存在时返回null
+         */
+        Snapshot with(String key, String value) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i].equals(key)) {
+                    String[] newValues = values.clone();
+                    newValues[i] = value;
+                    return new Snapshot(keys, newValues);
+                }
+            }
+            if (keys.length >= MAX_SLOTS) {
+                return null;
+            }
+            String[] newKeys = new String[keys.length + 1];
+            String[] newValues = new String[keys.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, keys.length);
+            System.arraycopy(values, 0, newValues, 0, values.length);
+            newKeys[keys.length] = key;
+            newValues[keys.length] = value;
+            return new Snapshot(newKeys, newValues);
+        }
+
+        Snapshot without(String key) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i].equals(key)) {
+                    String[] newKeys = new String[keys.length - 1];
+                    String[] newValues = new String[keys.length - 1];
+                    System.arraycopy(keys, 0, newKeys, 0, i);
+                    System.arraycopy(values, 0, newValues, 0, i);
+                    System.arraycopy(keys, i + 1, newKeys, i, keys.length - i - 1);
+                    System.arraycopy(values, i + 1, newValues, i, values.length - i - 1);
+                    return new Snapshot(newKeys, newValues);
+                }
+            }
+            return this;
+        }
+
+        /**
+         * 以"{key1=value1, key2=value2}"的形式返回全部上下文。
+         */
+        @Override
+        public String toString() {
+            StringBuilder buf = new StringBuilder("{");
+            for (int i = 0; i < keys.length; i++) {
+                if (i > 0) {
+                    buf.append(", ");
+                }
+                buf.append(keys[i]).append('=').append(values[i]);
+            }
+            return buf.append('}').toString();
+        }
+    }
+}
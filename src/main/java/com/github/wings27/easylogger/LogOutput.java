@@ -0,0 +1,99 @@
+package com.github.wings27.easylogger;
+
+import org.apache.log4j.helpers.LogLog;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+
+/**
+ * DirectLogWriter和JsonLogWriter共用的输出端，持有输出channel、ByteSink池和异步模式下的HandoffWriter.
+ * 同步模式下由调用方线程直接写出，异步模式下交给后台写线程；写出失败时只通过LogLog打印错误。
+ */
+final class LogOutput implements Closeable {
+
+    private final WritableByteChannel channel;
+
+    private final SinkPool sinks;
+
+    // 异步模式下负责I/O的后台写线程，同步模式下为null
+    private final HandoffWriter handoff;
+
+    /**
+     * @param channel           输出channel，所有权转移给本实例
+     * @param charset           输出字符集
+     * @param initialBufferSize 池中ByteSink的初始容量
+     * @param async             是否由后台线程执行I/O
+     */
+    LogOutput(WritableByteChannel channel, Charset charset, int initialBufferSize, boolean async) {
+        this.channel = channel;
+        this.sinks = new SinkPool(charset, initialBufferSize);
+        this.handoff = async ? new HandoffWriter(channel, charset) : null;
+    }
+
+    boolean isAsync() {
+        return handoff != null;
+    }
+
+    /**
+     * 从池中取出一个已清空的ByteSink，用完后通过write(ByteSink)或release(ByteSink)归还。
+     */
+    ByteSink acquire() {
+        return sinks.acquire();
+    }
+
+    void release(ByteSink sink) {
+        sinks.release(sink);
+    }
+
+    /**
+     * 异步模式下申请交接环中的槽位，参见HandoffWriter.claim().
+     */
+    ByteSink claim() {
+        return handoff.claim();
+    }
+
+    /**
+     * 异步模式下发布claim()申请到的槽位，参见HandoffWriter.publish(ByteSink, boolean).
+     */
+    void publish(ByteSink slot, boolean rendered) {
+        handoff.publish(slot, rendered);
+    }
+
+    /**
+     * 写出acquire()取得的sink中已写入的内容，并把sink归还到池中。
+     */
+    void write(ByteSink sink) {
+        ByteBuffer bytes = sink.flip();
+        try {
+            if (handoff != null) {
+                handoff.submit(sink);
+                return;
+            }
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        } catch (IOException e) {
+            LogLog.error("Failed to write log event.", e);
+        } catch (RuntimeException e) {
+            LogLog.error("Failed to write log event.", e);
+        } finally {
+            sinks.release(sink);
+        }
+    }
+
+    /**
+     * 关闭底层channel. 异步模式下先等待积压的日志全部写出。
+     *
+     * @throws IOException 关闭失败时
+     */
+    @Override
+    public void close() throws IOException {
+        if (handoff != null) {
+            handoff.shutdown();
+        }
+        channel.close();
+    }
+}
@@ -0,0 +1,210 @@
+package com.github.wings27.easylogger;
+
+import org.apache.log4j.Appender;
+import org.apache.log4j.Category;
+import org.apache.log4j.Layout;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.helpers.LogLog;
+import org.slf4j.helpers.MessageFormatter;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * 启动预热。上次运行时把Log中已缓存logger的调用类名保存到文件，本次启动时按文件预先创建这些logger，
+ * 避免首批请求集中在log4j仓库锁上创建logger；同时反复执行级别判断和格式化路径，让JIT在流量到来前完成编译。
+ * 设置了DirectLogWriter时预热其渲染路径，否则预热这些logger所用Appender的Layout，两者都不产生日志输出。
+ * 文件为UTF-8编码，每行一个类名，空行和以#开头的行被忽略。
+ * Example： LogWarmup.saveOnShutdown("logs/warmup.txt"); LogWarmup.warmUp("logs/warmup.txt");
+ */
+public final class LogWarmup {
+
+    /**
+     * 预热时执行级别判断和格式化的次数，超过HotSpot C2的默认编译阈值。
+     */
+    static final int ITERATIONS = 20000;
+
+    private static final String CHARSET = "UTF-8";
+
+    private LogWarmup() {
+    }
+
+    /**
+     * 把当前已缓存logger的调用类名保存到文件，已存在的文件会被覆盖。
+     *
+     * @param fileName 文件名
+     * @throws IOException 写文件失败时
+     */
+    public static void save(String fileName) throws IOException {
+        File file = new File(fileName);
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs() && !parent.exists()) {
+            throw new IOException("Could not create directory " + parent);
+        }
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), CHARSET);
+        try {
+            for (String className : new TreeSet<String>(Log.cachedClassNames())) {
+                writer.write(className);
+                writer.write('\n');
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * 注册shutdown hook，在JVM退出时调用save(fileName)，失败时只打印错误。
+     *
+     * @param fileName 文件名
+     */
+    public static void saveOnShutdown(final String fileName) {
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    save(fileName);
+                } catch (IOException e) {
+                    LogLog.error("Failed to save logger warm-up file " + fileName, e);
+                }
+            }
+        }, "easy-logger-warmup-save"));
+    }
+
+    /**
+     * 按文件预先填充Log的logger cache，并预热级别判断和格式化路径。
+     * 预热是可选的优化，文件不存在或读取失败时不会影响启动，只跳过cache的填充。
+     *
+     * @param fileName save(String)保存的文件名
+     * @return 预先创建的logger数量
+     */
+    public static int warmUp(String fileName) {
+        List<EasyLog4jLogger> loggers = new ArrayList<EasyLog4jLogger>();
+        File file = new File(fileName);
+        if (file.isFile()) {
+            try {
+                for (String className : read(file)) {
+                    loggers.add(Log.loadLogger(className));
+                }
+            } catch (IOException e) {
+                LogLog.warn("Failed to read logger warm-up file " + fileName, e);
+            }
+        }
+        int loaded = loggers.size();
+        if (loggers.isEmpty()) {
+            loggers.add(EasyLog4jLogger.getInstance(LogWarmup.class.getName(), Log.class.getName()));
+        }
+
+        int checksum = touch(loggers);
+        DirectLogWriter[] writers = EasyLog4jLogger.getDirectWriters();
+        if (writers.length == 0) {
+            checksum += touchLayouts(loggers);
+        }
+        LogLog.debug("Warmed up " + loaded + " loggers, checksum " + checksum + ".");
+        for (DirectLogWriter writer : writers) {
+            writer.warmUp(ITERATIONS);
+        }
+        return loaded;
+    }
+
+    private static List<String> read(File file) throws IOException {
+        List<String> classNames = new ArrayList<String>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), CHARSET));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    classNames.add(line);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return classNames;
+    }
+
+    /**
+     * 只调用级别判断和MessageFormatter，不产生任何日志输出。返回的校验和用于避免循环被JIT当作死代码消除。
+     */
+    private static int touch(List<EasyLog4jLogger> loggers) {
+        int checksum = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            EasyLog4jLogger logger = loggers.get(i % loggers.size());
+            if (logger.isTraceEnabled()) {
+                checksum++;
+            }
+            if (logger.isDebugEnabled()) {
+                checksum++;
+            }
+            if (logger.isInfoEnabled()) {
+                checksum++;
+            }
+            if (logger.isWarnEnabled()) {
+                checksum++;
+            }
+            if (logger.isErrorEnabled()) {
+                checksum++;
+            }
+            checksum += MessageFormatter.arrayFormat("warm up {} of {}", new Object[]{i, checksum})
+                    .getMessage().length();
+        }
+        return checksum;
+    }
+
+    /**
+     * 没有DirectLogWriter时日志经由log4j的Appender输出。对loggers（按additivity包括祖先）的每个Appender，
+     * 以ContextLoggingEvent反复调用其Layout的format，预热事件创建和格式化路径。只格式化，不调用Appender，因此不产生输出。
+     */
+    private static int touchLayouts(List<EasyLog4jLogger> loggers) {
+        Map<Appender, Logger> appenders = new IdentityHashMap<Appender, Logger>();
+        for (EasyLog4jLogger logger : loggers) {
+            for (Category category = logger.logger; category != null; category = category.getParent()) {
+                Enumeration<?> attached = category.getAllAppenders();
+                while (attached.hasMoreElements()) {
+                    Appender appender = (Appender) attached.nextElement();
+                    if (!appenders.containsKey(appender)) {
+                        appenders.put(appender, logger.logger);
+                    }
+                }
+                if (!category.getAdditivity()) {
+                    break;
+                }
+            }
+        }
+
+        int checksum = 0;
+        for (Map.Entry<Appender, Logger> entry : appenders.entrySet()) {
+            Appender appender = entry.getKey();
+            Layout layout = appender.getLayout();
+            if (layout == null) {
+                continue;
+            }
+            try {
+                for (int i = 0; i < ITERATIONS; i++) {
+                    ContextLoggingEvent event = new ContextLoggingEvent(LogWarmup.class.getName(), entry.getValue(),
+                            Level.INFO, "warm up " + i, null, LogContext.capture());
+                    // 与AppenderSkeleton.doAppend相同，在Appender上加锁，PatternLayout等实现不是线程安全的
+                    synchronized (appender) {
+                        checksum += layout.format(event).length();
+                    }
+                }
+            } catch (RuntimeException e) {
+                LogLog.warn("Failed to warm up layout of appender " + appender.getName(), e);
+            }
+        }
+        return checksum;
+    }
+}
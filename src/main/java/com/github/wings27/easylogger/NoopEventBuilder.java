@@ -0,0 +1,40 @@
+package com.github.wings27.easylogger;
+
+/**
+ * 级别未启用时使用的EventBuilder单例，所有操作均不做任何事。
+ */
+final class NoopEventBuilder implements EventBuilder {
+
+    static final NoopEventBuilder INSTANCE = new NoopEventBuilder();
+
+    private NoopEventBuilder() {
+    }
+
+    @Override
+    public EventBuilder kv(String key, Object value) {
+        return this;
+    }
+
+    @Override
+    public EventBuilder kv(String key, long value) {
+        return this;
+    }
+
+    @Override
+    public EventBuilder kv(String key, double value) {
+        return this;
+    }
+
+    @Override
+    public EventBuilder kv(String key, boolean value) {
+        return this;
+    }
+
+    @Override
+    public void log(String message) {
+    }
+
+    @Override
+    public void log(String message, Throwable t) {
+    }
+}
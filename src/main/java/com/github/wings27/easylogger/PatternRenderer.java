@@ -0,0 +1,326 @@
+package com.github.wings27.easylogger;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.spi.ThrowableInformation;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * log4j PatternLayout中ConversionPattern的子集编译器。
+ * 支持的转换符为%d、%p、%t、%l、%m、%n以及转义的%%，不支持宽度等格式修饰符。
+ * 另外支持与EasyPatternLayout相同的%K，用于输出LogContext中的上下文。
+ * 编译结果为一组按顺序执行的片段，直接渲染为指定字符集的字节，输出与PatternLayout逐字节一致。
+ * 字面量在编译时预先编码，线程名和调用位置的编码结果被缓存复用。
+ */
+final class PatternRenderer {
+
+    private static final String NA = "?";
+
+    private static final String LINE_SEP = System.getProperty("line.separator");
+
+    private final Segment[] segments;
+
+    private final Charset charset;
+
+    private final byte[] lineSeparator;
+
+    private final boolean locationRequired;
+
+    /**
+     * 编译指定的ConversionPattern.
+     *
+     * @param conversionPattern log4j格式的ConversionPattern
+     * @param charset           输出字符集
+     * @throws IllegalArgumentException 当pattern包含不支持的转换符或格式修饰符时
+     */
+    PatternRenderer(String conversionPattern, Charset charset) {
+        List<Segment> compiled = new ArrayList<Segment>();
+        StringBuilder literal = new StringBuilder();
+        boolean location = false;
+
+        int i = 0;
+        int length = conversionPattern.length();
+        while (i < length) {
+            char c = conversionPattern.charAt(i++);
+            if (c != '%') {
+                literal.append(c);
+                continue;
+            }
+            if (i >= length) {
+                throw new IllegalArgumentException("Unexpected end of pattern: " + conversionPattern);
+            }
+
+            char key = conversionPattern.charAt(i++);
+            if (key == '%') {
+                literal.append('%');
+                continue;
+            }
+            if (key == 'n') {
+                literal.append(LINE_SEP);
+                continue;
+            }
+
+            if (literal.length() > 0) {
+                compiled.add(new LiteralSegment(literal.toString().getBytes(charset)));
+                literal.setLength(0);
+            }
+
+            switch (key) {
+                case 'd':
+                    String dateOption = null;
+                    if (i < length && conversionPattern.charAt(i) == '{') {
+                        int end = conversionPattern.indexOf('}', i);
+                        if (end < 0) {
+                            throw new IllegalArgumentException("Unclosed date option in pattern: "
+                                    + conversionPattern);
+                        }
+                        dateOption = conversionPattern.substring(i + 1, end);
+                        i = end + 1;
+                    }
+                    compiled.add(new DateSegment(toDatePattern(dateOption)));
+                    break;
+                case 'p':
+                    compiled.add(new LevelSegment());
+                    break;
+                case 't':
+                    compiled.add(new ThreadSegment(charset));
+                    break;
+                case 'l':
+                    compiled.add(new LocationSegment());
+                    location = true;
+                    break;
+                case 'm':
+                    compiled.add(new MessageSegment());
+                    break;
+                case 'K':
+                    String contextKey = null;
+                    if (i < length && conversionPattern.charAt(i) == '{') {
+                        int end = conversionPattern.indexOf('}', i);
+                        if (end < 0) {
+                            throw new IllegalArgumentException("Unclosed context key in pattern: "
+                                    + conversionPattern);
+                        }
+                        contextKey = conversionPattern.substring(i + 1, end);
+                        i = end + 1;
+                    }
+                    compiled.add(new ContextSegment(contextKey));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported conversion '%" + key
+                            + "' in pattern: " + conversionPattern);
+            }
+        }
+        if (literal.length() > 0) {
+            compiled.add(new LiteralSegment(literal.toString().getBytes(charset)));
+        }
+
+        this.segments = compiled.toArray(new Segment[compiled.size()]);
+        this.charset = charset;
+        this.lineSeparator = LINE_SEP.getBytes(charset);
+        this.locationRequired = location;
+    }
+
+    /**
+     * 将日志事件按编译后的pattern渲染到sink中。异常堆栈按WriterAppender的方式逐行追加在layout之后。
+     *
+     * @param sink       输出目标，字符集须与构造时指定的一致
+     * @param timeStamp  事件时间戳
+     * @param level      事件级别
+     * @param threadName 事件所在线程的线程名
+     * @param callerFQCN logger包装器的全称类名，用于计算%l. 为null时%l输出为空
+     * @param message    日志信息，可以为null
+     * @param t          异常，可以为null
+     * @param callers    调用位置的编码缓存，可以为null
+     * @param context    事件的上下文快照
+     */
+    void render(ByteSink sink, long timeStamp, Level level, String threadName, String callerFQCN,
+                String message, Throwable t, CallerCache callers, LogContext.Snapshot context) {
+        byte[] location = null;
+        if (locationRequired && callerFQCN != null) {
+            StackTraceElement caller = locate(new Throwable(), callerFQCN);
+            if (caller != null) {
+                location = callers == null ? formatLocation(caller).getBytes(charset)
+                        : callers.get(caller, charset);
+            }
+        }
+        for (Segment segment : segments) {
+            segment.append(sink, timeStamp, level, threadName, location, message, context);
+        }
+        if (t != null) {
+            for (String line : new ThrowableInformation(t).getThrowableStrRep()) {
+                sink.put(line);
+                sink.put(lineSeparator);
+            }
+        }
+    }
+
+    Charset charset() {
+        return charset;
+    }
+
+    /**
+     * 与log4j LocationInfo一致：自底向上找到callerFQCN所在的栈帧，返回其调用者的栈帧。
+     */
+    static StackTraceElement locate(Throwable t, String callerFQCN) {
+        StackTraceElement[] elements = t.getStackTrace();
+        for (int i = elements.length - 1; i >= 0; i--) {
+            if (!callerFQCN.equals(elements[i].getClassName())) {
+                continue;
+            }
+            int caller = i + 1;
+            return caller < elements.length ? elements[caller] : null;
+        }
+        return null;
+    }
+
+    /**
+     * 按log4j LocationInfo.fullInfo的格式输出调用位置。
+     */
+    static String formatLocation(StackTraceElement caller) {
+        String fileName = caller.getFileName();
+        int line = caller.getLineNumber();
+        return caller.getClassName() + '.' + caller.getMethodName()
+                + '(' + (fileName == null ? NA : fileName)
+                + ':' + (line < 0 ? NA : String.valueOf(line)) + ')';
+    }
+
+    /**
+     * 把%d的选项转换为SimpleDateFormat格式，ISO8601、ABSOLUTE和DATE的含义与log4j相同，缺省为ISO8601.
+     */
+    static String toDatePattern(String dateOption) {
+        if (dateOption == null || dateOption.equalsIgnoreCase("ISO8601")) {
+            return "yyyy-MM-dd HH:mm:ss,SSS";
+        } else if (dateOption.equalsIgnoreCase("ABSOLUTE")) {
+            return "HH:mm:ss,SSS";
+        } else if (dateOption.equalsIgnoreCase("DATE")) {
+            return "dd MMM yyyy HH:mm:ss,SSS";
+        }
+        return dateOption;
+    }
+
+    private interface Segment {
+        void append(ByteSink sink, long timeStamp, Level level, String threadName, byte[] location,
+                    String message, LogContext.Snapshot context);
+    }
+
+    private static final class LiteralSegment implements Segment {
+        private final byte[] literal;
+
+        LiteralSegment(byte[] literal) {
+            this.literal = literal;
+        }
+
+        @Override
+        public void append(ByteSink sink, long timeStamp, Level level, String threadName, byte[] location,
+                           String message, LogContext.Snapshot context) {
+            sink.put(literal);
+        }
+    }
+
+    private static final class DateSegment implements Segment {
+        private final TimestampRenderer renderer;
+
+        DateSegment(String datePattern) {
+            this.renderer = new TimestampRenderer(datePattern);
+        }
+
+        @Override
+        public void append(ByteSink sink, long timeStamp, Level level, String threadName, byte[] location,
+                           String message, LogContext.Snapshot context) {
+            StringBuilder buf = sink.scratch();
+            renderer.append(buf, timeStamp);
+            sink.put(buf);
+        }
+    }
+
+    private static final class LevelSegment implements Segment {
+        @Override
+        public void append(ByteSink sink, long timeStamp, Level level, String threadName, byte[] location,
+                           String message, LogContext.Snapshot context) {
+            sink.put(level.toString());
+        }
+    }
+
+    /**
+     * 以线程名为key缓存编码结果，与sink和线程无关，因此sink在线程间流转或线程数远多于sink时仍然有效。
+     * 线程改名后按新的名字重新编码；缓存的线程名超过上限后不再缓存，直接编码。
+     */
+    private static final class ThreadSegment implements Segment {
+        private static final int MAX_ENTRIES = 1024;
+
+        private final Charset charset;
+
+        private final ConcurrentMap<String, byte[]> names = new ConcurrentHashMap<String, byte[]>();
+
+        ThreadSegment(Charset charset) {
+            this.charset = charset;
+        }
+
+        @Override
+        public void append(ByteSink sink, long timeStamp, Level level, String threadName, byte[] location,
+                           String message, LogContext.Snapshot context) {
+            byte[] encoded = names.get(threadName);
+            if (encoded == null) {
+                encoded = threadName.getBytes(charset);
+                if (names.size() < MAX_ENTRIES) {
+                    names.putIfAbsent(threadName, encoded);
+                }
+            }
+            sink.put(encoded);
+        }
+    }
+
+    private static final class LocationSegment implements Segment {
+        @Override
+        public void append(ByteSink sink, long timeStamp, Level level, String threadName, byte[] location,
+                           String message, LogContext.Snapshot context) {
+            if (location != null) {
+                sink.put(location);
+            }
+        }
+    }
+
+    private static final class MessageSegment implements Segment {
+        @Override
+        public void append(ByteSink sink, long timeStamp, Level level, String threadName, byte[] location,
+                           String message, LogContext.Snapshot context) {
+            if (message != null) {
+                sink.put(message);
+            }
+        }
+    }
+
+    private static final class ContextSegment implements Segment {
+        private final String key;
+
+        ContextSegment(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public void append(ByteSink sink, long timeStamp, Level level, String threadName, byte[] location,
+                           String message, LogContext.Snapshot context) {
+            if (key != null) {
+                String value = context.get(key);
+                if (value != null) {
+                    sink.put(value);
+                }
+                return;
+            }
+            sink.put((byte) '{');
+            for (int i = 0; i < context.size(); i++) {
+                if (i > 0) {
+                    sink.put(", ");
+                }
+                sink.put(context.keyAt(i));
+                sink.put((byte) '=');
+                sink.put(context.valueAt(i));
+            }
+            sink.put((byte) '}');
+        }
+    }
+}
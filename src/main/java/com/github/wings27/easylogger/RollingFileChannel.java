@@ -0,0 +1,168 @@
+package com.github.wings27.easylogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.TimeZone;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 按日期滚动的日志文件channel，命名规则与DailyRollingFileAppender相同：
+ * 当前文件名为fileName，滚动出的文件名为fileName加上以datePattern格式化的周期起始时间。
+ * 滚动时只在写锁内完成关闭、重命名和重新打开文件，压缩和清理交给LogCompressor在后台完成，不阻塞写日志的线程。
+ * 可作为DirectLogWriter或JsonLogWriter的输出channel.
+ * Example： new DirectLogWriter(pattern, new RollingFileChannel("logs/daily_log_.log", "'.'yyyy-MM-dd", compressor),
+ * Charset.defaultCharset(), Level.DEBUG, true);
+ */
+public class RollingFileChannel implements WritableByteChannel {
+
+    private static final int[] PERIODS = {Calendar.MINUTE, Calendar.HOUR_OF_DAY, Calendar.DAY_OF_MONTH,
+            Calendar.WEEK_OF_YEAR, Calendar.MONTH};
+
+    private final String fileName;
+
+    private final SimpleDateFormat dateFormat;
+
+    private final int period;
+
+    private final LogCompressor compressor;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private WritableByteChannel channel;
+
+    private String scheduledFileName;
+
+    private volatile long nextRollover;
+
+    private volatile boolean open = true;
+
+    /**
+     * @param fileName    当前日志文件名
+     * @param datePattern 滚动文件名后缀的SimpleDateFormat格式，同时决定滚动周期，例如"'.'yyyy-MM-dd"为每天滚动
+     * @param compressor  压缩和清理滚动文件的后台线程，为null时滚动出的文件保持原样；
+     *                    不为null时，上次运行遗留的未压缩滚动文件会被重新提交
+     * @throws IOException 打开文件失败时
+     */
+    public RollingFileChannel(String fileName, String datePattern, LogCompressor compressor) throws IOException {
+        this.fileName = fileName;
+        this.dateFormat = new SimpleDateFormat(datePattern);
+        this.period = computePeriod(datePattern);
+        this.compressor = compressor;
+
+        File file = new File(fileName);
+        long now = System.currentTimeMillis();
+        long periodTime = file.exists() ? file.lastModified() : now;
+        this.scheduledFileName = fileName + dateFormat.format(new Date(periodTime));
+        this.nextRollover = nextRollover(periodTime);
+        this.channel = DirectLogWriter.openAppend(fileName);
+        if (compressor != null) {
+            compressor.submitUncompressed(file.getAbsoluteFile().getParentFile(), file.getName(), datePattern);
+        }
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        if (System.currentTimeMillis() >= nextRollover) {
+            rollover();
+        }
+        lock.readLock().lock();
+        try {
+            if (!open) {
+                throw new ClosedChannelException();
+            }
+            return channel.write(src);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (open) {
+                open = false;
+                channel.close();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void rollover() throws IOException {
+        File rolled;
+        lock.writeLock().lock();
+        try {
+            long now = System.currentTimeMillis();
+            // 其他线程可能已经完成了滚动
+            if (!open || now < nextRollover) {
+                return;
+            }
+            channel.close();
+            rolled = new File(scheduledFileName);
+            // 重命名失败时继续追加到原文件，与DailyRollingFileAppender一致
+            if ((rolled.exists() && !rolled.delete()) || !new File(fileName).renameTo(rolled)) {
+                rolled = null;
+            }
+            channel = DirectLogWriter.openAppend(fileName);
+            scheduledFileName = fileName + dateFormat.format(new Date(now));
+            nextRollover = nextRollover(now);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (rolled != null && compressor != null) {
+            compressor.submit(rolled, new File(fileName).getName(), dateFormat.toPattern());
+        }
+    }
+
+    private long nextRollover(long time) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(time);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        if (period != Calendar.MINUTE) {
+            calendar.set(Calendar.MINUTE, 0);
+        }
+        if (period == Calendar.DAY_OF_MONTH || period == Calendar.WEEK_OF_YEAR || period == Calendar.MONTH) {
+            calendar.set(Calendar.HOUR_OF_DAY, 0);
+        }
+        if (period == Calendar.WEEK_OF_YEAR) {
+            calendar.set(Calendar.DAY_OF_WEEK, calendar.getFirstDayOfWeek());
+        } else if (period == Calendar.MONTH) {
+            calendar.set(Calendar.DAY_OF_MONTH, 1);
+        }
+        calendar.add(period, 1);
+        return calendar.getTimeInMillis();
+    }
+
+    /**
+     * 与DailyRollingFileAppender相同，以格式化结果开始变化的最小时间单位作为滚动周期。
+     */
+    private static int computePeriod(String datePattern) {
+        SimpleDateFormat format = new SimpleDateFormat(datePattern);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("GMT"));
+        calendar.setTimeInMillis(0);
+        String epoch = format.format(calendar.getTime());
+        for (int period : PERIODS) {
+            Calendar next = (Calendar) calendar.clone();
+            next.add(period, 1);
+            if (!epoch.equals(format.format(next.getTime()))) {
+                return period;
+            }
+        }
+        throw new IllegalArgumentException("Date pattern " + datePattern + " does not define a rollover period.");
+    }
+}
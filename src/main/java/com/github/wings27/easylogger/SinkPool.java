@@ -0,0 +1,30 @@
+package com.github.wings27.easylogger;
+
+import java.nio.charset.Charset;
+
+/**
+ * ByteSink的对象池，取出的实例已清空。
+ */
+final class SinkPool extends BoundedPool<ByteSink> {
+
+    private final Charset charset;
+
+    private final int initialCapacity;
+
+    SinkPool(Charset charset, int initialCapacity) {
+        this.charset = charset;
+        this.initialCapacity = initialCapacity;
+    }
+
+    @Override
+    protected ByteSink create() {
+        return new ByteSink(charset, initialCapacity);
+    }
+
+    @Override
+    ByteSink acquire() {
+        ByteSink sink = super.acquire();
+        sink.clear();
+        return sink;
+    }
+}
@@ -0,0 +1,56 @@
+package com.github.wings27.easylogger;
+
+import org.apache.log4j.Level;
+
+/**
+ * 未设置JsonLogWriter时使用的EventBuilder，将字段以" key=value"的形式附加在信息之后，
+ * 再经由EasyLog4jLogger的普通输出路径输出。
+ */
+final class TextEventBuilder implements EventBuilder {
+
+    private final EasyLog4jLogger logger;
+
+    private final Level level;
+
+    private final StringBuilder fields = new StringBuilder();
+
+    TextEventBuilder(EasyLog4jLogger logger, Level level) {
+        this.logger = logger;
+        this.level = level;
+    }
+
+    @Override
+    public EventBuilder kv(String key, Object value) {
+        fields.append(' ').append(key).append('=').append(value);
+        return this;
+    }
+
+    @Override
+    public EventBuilder kv(String key, long value) {
+        fields.append(' ').append(key).append('=').append(value);
+        return this;
+    }
+
+    @Override
+    public EventBuilder kv(String key, double value) {
+        fields.append(' ').append(key).append('=').append(value);
+        return this;
+    }
+
+    @Override
+    public EventBuilder kv(String key, boolean value) {
+        fields.append(' ').append(key).append('=').append(value);
+        return this;
+    }
+
+    @Override
+    public void log(String message) {
+        log(message, null);
+    }
+
+    @Override
+    public void log(String message, Throwable t) {
+        // 以本类作为调用者全称类名，%l定位到调用log的代码
+        logger.logStructured(TextEventBuilder.class.getName(), level, message + fields, t);
+    }
+}
@@ -0,0 +1,150 @@
+package com.github.wings27.easylogger;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 带缓存的%d时间戳渲染器，输出与SimpleDateFormat一致。
+ * 同一分钟内的格式化结果只生成一次，之后每条日志只改写秒和毫秒所在的数字。
+ * 缓存项不可变，通过AtomicReference整体替换，渲染过程不加锁。
+ * 如果pattern中的秒或毫秒不是定长数字（例如"s"或本地化数字），缓存粒度会相应退化为秒或毫秒。
+ */
+final class TimestampRenderer {
+
+    private static final long MINUTE = 60 * 1000L;
+
+    private static final long SECOND = 1000L;
+
+    private final String datePattern;
+
+    private final AtomicReference<Entry> cache = new AtomicReference<Entry>();
+
+    /**
+     * @param datePattern SimpleDateFormat格式的pattern
+     * @throws IllegalArgumentException 当pattern非法时
+     */
+    TimestampRenderer(String datePattern) {
+        this.datePattern = datePattern;
+        new SimpleDateFormat(datePattern);  // 尽早暴露非法的日期pattern
+    }
+
+    /**
+     * 将时间戳按pattern格式化后追加到buf中。
+     *
+     * @param buf       输出目标
+     * @param timeStamp 时间戳
+     */
+    void append(StringBuilder buf, long timeStamp) {
+        Entry entry = cache.get();
+        if (entry == null || timeStamp < entry.start || timeStamp >= entry.end) {
+            entry = createEntry(timeStamp);
+            cache.set(entry);
+        }
+        entry.appendTo(buf, timeStamp);
+    }
+
+    private Entry createEntry(long timeStamp) {
+        SimpleDateFormat format = new SimpleDateFormat(datePattern);
+
+        long secondStart = timeStamp - floorMod(timeStamp, SECOND);
+        String second = format.format(new Date(secondStart));
+        int milliOffset = findDigits(second, format.format(new Date(secondStart + 111)), 3);
+        if (milliOffset == -2) {
+            // 毫秒不是定长数字，只能缓存当前这一毫秒
+            return new Entry(timeStamp, timeStamp + 1, format.format(new Date(timeStamp)), -1, -1);
+        }
+
+        long minuteStart = timeStamp - floorMod(timeStamp, MINUTE);
+        String minute = format.format(new Date(minuteStart));
+        int secondOffset = findDigits(minute, format.format(new Date(minuteStart + 11 * SECOND)), 2);
+        if (secondOffset == -2 || !minute.equals(replaceSeconds(second, secondOffset, 0))) {
+            // 秒不是定长数字，或者该分钟的起点与整分不对齐，退化为按秒缓存
+            return new Entry(secondStart, secondStart + SECOND, second, -1, milliOffset);
+        }
+        return new Entry(minuteStart, minuteStart + MINUTE, minute, secondOffset, milliOffset);
+    }
+
+    /**
+     * 比较数字全为0与全为1两种输出，定位定长数字字段的起始位置。
+     *
+     * @return 字段起始位置；两者相同时返回-1，表示pattern中没有该字段；无法定位时返回-2
+     */
+    private static int findDigits(String zeros, String ones, int width) {
+        if (zeros.equals(ones)) {
+            return -1;
+        }
+        if (zeros.length() != ones.length()) {
+            return -2;
+        }
+        int offset = 0;
+        while (zeros.charAt(offset) == ones.charAt(offset)) {
+            offset++;
+        }
+        if (offset + width > zeros.length()
+                || !zeros.regionMatches(offset + width, ones, offset + width, zeros.length() - offset - width)) {
+            return -2;
+        }
+        for (int i = offset; i < offset + width; i++) {
+            if (zeros.charAt(i) != '0' || ones.charAt(i) != '1') {
+                return -2;
+            }
+        }
+        return offset;
+    }
+
+    private static String replaceSeconds(String text, int secondOffset, int seconds) {
+        if (secondOffset < 0) {
+            return text;
+        }
+        char[] chars = text.toCharArray();
+        chars[secondOffset] = (char) ('0' + seconds / 10);
+        chars[secondOffset + 1] = (char) ('0' + seconds % 10);
+        return new String(chars);
+    }
+
+    private static long floorMod(long x, long y) {
+        long mod = x % y;
+        return mod < 0 ? mod + y : mod;
+    }
+
+    /**
+     * 覆盖[start, end)时间段的格式化结果，创建后不再修改。
+     */
+    private static final class Entry {
+        final long start;
+
+        final long end;
+
+        final char[] text;
+
+        final int secondOffset;
+
+        final int milliOffset;
+
+        Entry(long start, long end, String text, int secondOffset, int milliOffset) {
+            this.start = start;
+            this.end = end;
+            this.text = text.toCharArray();
+            this.secondOffset = secondOffset;
+            this.milliOffset = milliOffset;
+        }
+
+        void appendTo(StringBuilder buf, long timeStamp) {
+            int base = buf.length();
+            buf.append(text);
+            int elapsed = (int) (timeStamp - start);
+            if (secondOffset >= 0) {
+                int seconds = elapsed / 1000;
+                buf.setCharAt(base + secondOffset, (char) ('0' + seconds / 10));
+                buf.setCharAt(base + secondOffset + 1, (char) ('0' + seconds % 10));
+            }
+            if (milliOffset >= 0) {
+                int millis = elapsed % 1000;
+                buf.setCharAt(base + milliOffset, (char) ('0' + millis / 100));
+                buf.setCharAt(base + milliOffset + 1, (char) ('0' + millis / 10 % 10));
+                buf.setCharAt(base + milliOffset + 2, (char) ('0' + millis % 10));
+            }
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.github.wings27.easylogger;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DirectLogWriterTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int THREADS = 32;
+
+    private static final int EVENTS_PER_THREAD = 5000;
+
+    @Test(timeout = 60000)
+    public void testAsyncWriteFromManyThreads() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final DirectLogWriter writer = new DirectLogWriter("[%p] %m%n", Channels.newChannel(out), UTF_8,
+                Level.ALL, true);
+
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[THREADS];
+        for (int i = 0; i < THREADS; i++) {
+            final int thread = i;
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int j = 0; j < EVENTS_PER_THREAD; j++) {
+                        writer.write(Level.INFO, null, "event " + thread + "-" + j + " 中文", null);
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        writer.close();
+
+        String[] lines = new String(out.toByteArray(), UTF_8).split("\n", -1);
+        // 最后一个换行之后是空串
+        assertEquals(THREADS * EVENTS_PER_THREAD + 1, lines.length);
+        assertEquals("", lines[lines.length - 1]);
+        Set<String> unique = new HashSet<String>();
+        for (int i = 0; i < lines.length - 1; i++) {
+            assertTrue(lines[i], lines[i].matches("\\[INFO\\] event \\d+-\\d+ 中文\\r?"));
+            unique.add(lines[i]);
+        }
+        assertEquals(THREADS * EVENTS_PER_THREAD, unique.size());
+    }
+
+    @Test
+    public void testAsyncWriteOfLargeEvents() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DirectLogWriter writer = new DirectLogWriter("%m%n", Channels.newChannel(out), UTF_8, Level.ALL, true);
+        StringBuilder expected = new StringBuilder();
+        String separator = System.getProperty("line.separator");
+        for (int size : new int[]{10, 5000, 100000, 10}) {
+            StringBuilder message = new StringBuilder();
+            for (int i = 0; i < size; i++) {
+                message.append((char) ('a' + i % 26));
+            }
+            writer.write(Level.INFO, null, message.toString(), null);
+            expected.append(message).append(separator);
+        }
+        writer.close();
+        assertEquals(expected.toString(), new String(out.toByteArray(), UTF_8));
+    }
+
+    @Test(timeout = 20000)
+    public void testFailingChannelDoesNotBlockCallers() throws Exception {
+        final AtomicInteger attempts = new AtomicInteger();
+        WritableByteChannel failing = new WritableByteChannel() {
+            @Override
+            public int write(ByteBuffer src) {
+                attempts.incrementAndGet();
+                throw new IllegalStateException("broken channel");
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        DirectLogWriter writer = new DirectLogWriter("%m%n", failing, UTF_8, Level.ALL, true);
+        for (int i = 0; i < 20000; i++) {
+            writer.write(Level.INFO, null, "event " + i, null);
+        }
+        writer.close();
+        assertTrue(attempts.get() > 0);
+
+        // 关闭后的写入直接丢弃，不会阻塞也不会再访问channel
+        int closedAttempts = attempts.get();
+        for (int i = 0; i < 20000; i++) {
+            writer.write(Level.INFO, null, "after close " + i, null);
+        }
+        assertEquals(closedAttempts, attempts.get());
+    }
+
+    @Test
+    public void testFailingChannelInSyncMode() throws Exception {
+        WritableByteChannel failing = new WritableByteChannel() {
+            @Override
+            public int write(ByteBuffer src) {
+                throw new IllegalStateException("broken channel");
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        DirectLogWriter writer = new DirectLogWriter("%m%n", failing, UTF_8, Level.ALL, false);
+        // 异常只通过LogLog报告，不会抛给记录日志的调用方
+        writer.write(Level.INFO, null, "event", null);
+        writer.close();
+    }
+
+    @Test
+    public void testFanOutByThreshold() throws Exception {
+        String loggerName = "direct.writer.fanout";
+        Logger.getLogger(loggerName).setLevel(Level.DEBUG);
+        ByteArrayOutputStream daily = new ByteArrayOutputStream();
+        ByteArrayOutputStream error = new ByteArrayOutputStream();
+        DirectLogWriter dailyWriter = new DirectLogWriter("[%p] %m%n", Channels.newChannel(daily), UTF_8,
+                Level.DEBUG, false);
+        DirectLogWriter errorWriter = new DirectLogWriter("[%p] %m%n", Channels.newChannel(error), UTF_8,
+                Level.ERROR, false);
+        EasyLog4jLogger.setDirectWriters(dailyWriter, errorWriter);
+        try {
+            EasyLog4jLogger logger = EasyLog4jLogger.getInstance(loggerName, EasyLog4jLogger.class.getName());
+            logger.trace("trace");
+            logger.debug("debug");
+            logger.error("error");
+        } finally {
+            EasyLog4jLogger.setDirectWriters();
+        }
+        dailyWriter.close();
+        errorWriter.close();
+
+        String separator = System.getProperty("line.separator");
+        assertEquals("[DEBUG] debug" + separator + "[ERROR] error" + separator,
+                new String(daily.toByteArray(), UTF_8));
+        assertEquals("[ERROR] error" + separator, new String(error.toByteArray(), UTF_8));
+    }
+}
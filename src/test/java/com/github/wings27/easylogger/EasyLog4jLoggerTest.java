@@ -0,0 +1,28 @@
+package com.github.wings27.easylogger;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import static org.junit.Assert.assertSame;
+
+public class EasyLog4jLoggerTest {
+
+    @Test
+    public void testDeserializeToCanonicalInstance() throws Exception {
+        EasyLog4jLogger logger = EasyLog4jLogger.getInstance(EasyLog4jLoggerTest.class.getName(),
+                EasyLog4jLogger.class.getName());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(logger);
+        out.close();
+        Object restored = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+
+        assertSame(logger, restored);
+        ((EasyLog4jLogger) restored).info("logged by deserialized logger");
+    }
+}
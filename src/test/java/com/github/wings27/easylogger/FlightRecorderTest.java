@@ -0,0 +1,92 @@
+package com.github.wings27.easylogger;
+
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FlightRecorderTest {
+
+    private static final String LOGGER_NAME = "flight.recorder.test";
+
+    private final List<String> messages = new ArrayList<String>();
+
+    private final AppenderSkeleton appender = new AppenderSkeleton() {
+        @Override
+        protected void append(LoggingEvent event) {
+            messages.add(event.getLevel() + " " + event.getRenderedMessage());
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public boolean requiresLayout() {
+            return false;
+        }
+    };
+
+    @Before
+    public void setUp() {
+        Logger log4jLogger = Logger.getLogger(LOGGER_NAME);
+        log4jLogger.setLevel(Level.INFO);
+        log4jLogger.setAdditivity(false);
+        log4jLogger.addAppender(appender);
+        FlightRecorder.enable(2);
+    }
+
+    @After
+    public void tearDown() {
+        FlightRecorder.disable();
+        EasyLog4jLogger.setJsonWriter(null);
+        Logger.getLogger(LOGGER_NAME).removeAppender(appender);
+    }
+
+    @Test
+    public void testDumpOnError() {
+        EasyLog4jLogger logger = EasyLog4jLogger.getInstance(LOGGER_NAME, EasyLog4jLogger.class.getName());
+        logger.debug("dropped {}", 0);
+        logger.debug("debug {}", 1);
+        logger.info("info");
+        logger.trace("trace {} {}", 2, 3);
+        logger.error("error");
+        logger.error("error again");
+
+        List<String> expected = new ArrayList<String>();
+        expected.add("INFO info");
+        expected.add("DEBUG debug 1");
+        expected.add("TRACE trace 2 3");
+        expected.add("ERROR error");
+        expected.add("ERROR error again");
+        assertEquals(expected, messages);
+    }
+
+    @Test
+    public void testDumpOnStructuredError() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonLogWriter writer = new JsonLogWriter(Channels.newChannel(out), false);
+        EasyLog4jLogger.setJsonWriter(writer);
+
+        EasyLog4jLogger logger = EasyLog4jLogger.getInstance(LOGGER_NAME, EasyLog4jLogger.class.getName());
+        logger.debug("debug {}", 1);
+        logger.atError().kv("orderId", "A-1").log("failed");
+        writer.close();
+
+        assertEquals(1, messages.size());
+        assertEquals("DEBUG debug 1", messages.get(0));
+        String json = new String(out.toByteArray(), "UTF-8");
+        assertTrue(json, json.contains("\"msg\":\"failed\""));
+    }
+}
@@ -0,0 +1,74 @@
+package com.github.wings27.easylogger;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class JsonLogWriterTest {
+
+    private static final String LOGGER_NAME = "json.writer.test";
+
+    @After
+    public void tearDown() {
+        EasyLog4jLogger.setJsonWriter(null);
+    }
+
+    @Test
+    public void testJsonLine() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonLogWriter writer = new JsonLogWriter(Channels.newChannel(out), false);
+        EasyLog4jLogger.setJsonWriter(writer);
+
+        EasyLog4jLogger logger = EasyLog4jLogger.getInstance(LOGGER_NAME, EasyLog4jLogger.class.getName());
+        for (int i = 0; i < 2; i++) {
+            logger.atInfo().kv("orderId", "A-\"1\"").kv("ms", 12L).kv("ratio", 0.5).kv("ok", true)
+                    .kv("note", null).log("paid\n中文");
+        }
+        writer.close();
+
+        String[] lines = new String(out.toByteArray(), "UTF-8").split("\n");
+        assertEquals(2, lines.length);
+        String suffix = ",\"level\":\"INFO\",\"thread\":\"" + Thread.currentThread().getName()
+                + "\",\"logger\":\"" + LOGGER_NAME + "\",\"orderId\":\"A-\\\"1\\\"\",\"ms\":12,\"ratio\":0.5"
+                + ",\"ok\":true,\"note\":null,\"msg\":\"paid\\n中文\"}";
+        for (String line : lines) {
+            assertTrue(line, line.matches("\\{\"ts\":\\d+.*"));
+            assertTrue(line, line.endsWith(suffix));
+        }
+    }
+
+    @Test
+    public void testReservedKeysArePrefixed() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonLogWriter writer = new JsonLogWriter(Channels.newChannel(out), false);
+        EasyLog4jLogger.setJsonWriter(writer);
+
+        LogContext.put("level", "ctx");
+        try {
+            EasyLog4jLogger logger = EasyLog4jLogger.getInstance(LOGGER_NAME, EasyLog4jLogger.class.getName());
+            logger.atInfo().kv("msg", "kv").kv("ts", 1L).log("paid");
+        } finally {
+            LogContext.clear();
+        }
+        writer.close();
+
+        String line = new String(out.toByteArray(), "UTF-8");
+        assertTrue(line, line.endsWith(",\"logger\":\"" + LOGGER_NAME
+                + "\",\"_level\":\"ctx\",\"_msg\":\"kv\",\"_ts\":1,\"msg\":\"paid\"}\n"));
+    }
+
+    @Test
+    public void testDisabledLevelReturnsNoop() {
+        Logger.getLogger(LOGGER_NAME).setLevel(Level.INFO);
+        EasyLog4jLogger logger = EasyLog4jLogger.getInstance(LOGGER_NAME, EasyLog4jLogger.class.getName());
+        assertSame(NoopEventBuilder.INSTANCE, logger.atDebug());
+    }
+}
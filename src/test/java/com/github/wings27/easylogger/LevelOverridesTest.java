@@ -0,0 +1,58 @@
+package com.github.wings27.easylogger;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LevelOverridesTest {
+
+    @After
+    public void tearDown() {
+        LevelOverrides.clearAll();
+    }
+
+    @Test
+    public void testDeepestOverrideWins() {
+        LevelOverrides.setLevel("com.acme.payments", Level.DEBUG);
+        LevelOverrides.setLevel("com.acme.payments.gateway", Level.ERROR);
+
+        assertNull(LevelOverrides.getLevel("com.acme"));
+        assertNull(LevelOverrides.getLevel("com.acme.paymentsX"));
+        assertEquals(Level.DEBUG, LevelOverrides.getLevel("com.acme.payments"));
+        assertEquals(Level.DEBUG, LevelOverrides.getLevel("com.acme.payments.PaymentService"));
+        assertEquals(Level.ERROR, LevelOverrides.getLevel("com.acme.payments.gateway.Client"));
+
+        LevelOverrides.clearLevel("com.acme.payments");
+        assertNull(LevelOverrides.getLevel("com.acme.payments.PaymentService"));
+        assertEquals(Level.ERROR, LevelOverrides.getLevel("com.acme.payments.gateway.Client"));
+        assertEquals(1, LevelOverrides.getOverrides().size());
+    }
+
+    @Test
+    public void testCachedLoggerPicksUpOverride() {
+        String loggerName = "com.acme.payments.PaymentService";
+        Logger.getLogger(loggerName).setLevel(Level.INFO);
+        EasyLog4jLogger logger = EasyLog4jLogger.getInstance(loggerName, EasyLog4jLogger.class.getName());
+        assertFalse(logger.isDebugEnabled());
+
+        LevelOverrides.setLevel("com.acme.payments", Level.DEBUG);
+        assertTrue(logger.isDebugEnabled());
+
+        LevelOverrides.setLevel("", Level.WARN);
+        assertTrue(logger.isDebugEnabled());
+
+        LevelOverrides.clearLevel("com.acme.payments");
+        assertFalse(logger.isInfoEnabled());
+        assertTrue(logger.isWarnEnabled());
+
+        LevelOverrides.clearAll();
+        assertTrue(logger.isInfoEnabled());
+        assertFalse(logger.isDebugEnabled());
+    }
+}
@@ -0,0 +1,131 @@
+package com.github.wings27.easylogger;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class LogContextTest {
+
+    @After
+    public void tearDown() {
+        LogContext.clear();
+    }
+
+    @Test
+    public void testSnapshotIsImmutable() {
+        LogContext.put("requestId", "r-1");
+        LogContext.Snapshot snapshot = LogContext.capture();
+        assertSame(snapshot, LogContext.capture());
+
+        LogContext.put("requestId", "r-2");
+        LogContext.put("user", "u-1");
+        assertEquals("r-1", snapshot.get("requestId"));
+        assertEquals("{requestId=r-2, user=u-1}", LogContext.capture().toString());
+
+        LogContext.remove("requestId");
+        assertNull(LogContext.get("requestId"));
+        assertEquals("u-1", LogContext.get("user"));
+    }
+
+    @Test
+    public void testKeysBeyondLimitAreDropped() {
+        for (int i = 0; i < LogContext.MAX_SLOTS + 2; i++) {
+            LogContext.put("key" + i, "v" + i);
+        }
+        assertEquals(LogContext.MAX_SLOTS, LogContext.capture().size());
+        assertNull(LogContext.get("key" + LogContext.MAX_SLOTS));
+
+        // 已有key的值仍可修改
+        LogContext.put("key0", "updated");
+        assertEquals("updated", LogContext.get("key0"));
+    }
+
+    @Test
+    public void testPropagateToExecutor() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            LogContext.put("requestId", "r-1");
+            Future<String> propagated = executor.submit(LogContext.wrap(new Callable<String>() {
+                @Override
+                public String call() {
+                    return LogContext.get("requestId");
+                }
+            }));
+            assertEquals("r-1", propagated.get(10, TimeUnit.SECONDS));
+
+            // 任务执行完毕后恢复执行线程原有的上下文
+            assertNull(executor.submit(new Callable<String>() {
+                @Override
+                public String call() {
+                    return LogContext.get("requestId");
+                }
+            }).get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testSerializeAsPlainLoggingEvent() throws Exception {
+        LogContext.put("requestId", "r-1");
+        Logger logger = Logger.getLogger(LogContextTest.class);
+        LoggingEvent event = new ContextLoggingEvent(Logger.class.getName(), logger, Level.INFO, "message", null,
+                LogContext.capture());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(event);
+        out.close();
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        LoggingEvent received = (LoggingEvent) in.readObject();
+        in.close();
+
+        assertSame(LoggingEvent.class, received.getClass());
+        assertEquals("r-1", received.getProperty("requestId"));
+        assertEquals("message", received.getRenderedMessage());
+        assertEquals(event.timeStamp, received.timeStamp);
+    }
+
+    @Test
+    public void testRenderContextKey() {
+        LogContext.put("requestId", "r-1");
+        String pattern = "[%K{requestId}][%K{missing}]%K %m%n";
+
+        ByteSink sink = new ByteSink(Charset.forName("UTF-8"), 16);
+        new PatternRenderer(pattern, Charset.forName("UTF-8")).render(sink, 0L, Level.INFO, "main", null,
+                "message", null, null, LogContext.capture());
+        String rendered = Charset.forName("UTF-8").decode(sink.flip()).toString();
+
+        String expected = new EasyPatternLayout(pattern).format(new ContextLoggingEvent(
+                LogContextTest.class.getName(), Logger.getLogger("test"), Level.INFO, "message", null,
+                LogContext.capture()));
+        assertEquals("[r-1][]{requestId=r-1} message" + System.getProperty("line.separator"), rendered);
+        assertEquals(expected, rendered);
+    }
+
+    @Test
+    public void testForeignEventHasNoContext() {
+        LogContext.put("requestId", "r-1");
+        LoggingEvent event = new LoggingEvent(LogContextTest.class.getName(), Logger.getLogger("test"), Level.INFO,
+                "message", null);
+        assertEquals("[]{} message" + System.getProperty("line.separator"),
+                new EasyPatternLayout("[%K{requestId}]%K %m%n").format(event));
+    }
+}
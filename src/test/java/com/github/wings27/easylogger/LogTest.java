@@ -15,4 +15,9 @@ public class LogTest {
         Log.warn("warn with args : {}, {}", "arg0", "arg1");
         Log.error("error with args : {}, {}", "arg0", "arg1");
     }
+
+    @Test
+    public void testStructuredLog() {
+        Log.atInfo().kv("orderId", "arg0").kv("ms", 12L).log("structured info");
+    }
 }
\ No newline at end of file
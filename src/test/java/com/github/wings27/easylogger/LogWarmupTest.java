@@ -0,0 +1,87 @@
+package com.github.wings27.easylogger;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.PatternLayout;
+import org.apache.log4j.WriterAppender;
+import org.apache.log4j.spi.LoggingEvent;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LogWarmupTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSaveAndWarmUp() throws Exception {
+        Log.isInfoEnabled();
+        File file = new File(folder.getRoot(), "warmup/warmup.txt");
+        LogWarmup.save(file.getPath());
+        assertTrue(file.isFile());
+
+        int loaded = LogWarmup.warmUp(file.getPath());
+        assertEquals(Log.cachedClassNames().size(), loaded);
+        assertTrue(Log.cachedClassNames().contains(LogWarmupTest.class.getName()));
+    }
+
+    @Test
+    public void testMissingFileIsIgnored() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DirectLogWriter writer = new DirectLogWriter("%d [%t] [%p] %l - %m%n", Channels.newChannel(out),
+                Charset.forName("UTF-8"), Level.ALL, false);
+        EasyLog4jLogger.setDirectWriter(writer);
+        try {
+            assertEquals(0, LogWarmup.warmUp(new File(folder.getRoot(), "no-such-file.txt").getPath()));
+        } finally {
+            EasyLog4jLogger.setDirectWriter(null);
+            writer.close();
+        }
+        assertEquals(0, out.size());
+    }
+
+    @Test
+    public void testWarmUpLayoutsWithoutOutput() throws Exception {
+        String loggerName = "warmup.layout.test";
+        final AtomicInteger formatted = new AtomicInteger();
+        StringWriter out = new StringWriter();
+        WriterAppender appender = new WriterAppender(new PatternLayout("%d [%t] [%p] %m%n") {
+            @Override
+            public String format(LoggingEvent event) {
+                formatted.incrementAndGet();
+                return super.format(event);
+            }
+        }, out);
+        Logger logger = Logger.getLogger(loggerName);
+        logger.setAdditivity(false);
+        logger.addAppender(appender);
+        try {
+            File file = folder.newFile("warmup.txt");
+            OutputStream fileOut = new FileOutputStream(file);
+            try {
+                fileOut.write((loggerName + "\n").getBytes("UTF-8"));
+            } finally {
+                fileOut.close();
+            }
+            assertEquals(1, LogWarmup.warmUp(file.getPath()));
+        } finally {
+            logger.removeAppender(appender);
+            logger.setAdditivity(true);
+        }
+        assertEquals(LogWarmup.ITERATIONS, formatted.get());
+        assertEquals("", out.toString());
+    }
+}
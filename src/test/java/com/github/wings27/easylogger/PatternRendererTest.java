@@ -0,0 +1,103 @@
+package com.github.wings27.easylogger;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.PatternLayout;
+import org.apache.log4j.spi.LoggingEvent;
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.assertEquals;
+
+public class PatternRendererTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final String FILE_PATTERN = "%d{yyyy-MM-dd HH:mm:ss} [%t] [%p] %l - %m%n";
+
+    private static final String STDOUT_PATTERN = "[%d{HH:mm:ss}][%p]%l - %m%n";
+
+    @Test
+    public void testSameOutputAsPatternLayout() {
+        long timeStamp = System.currentTimeMillis();
+        for (String pattern : new String[]{FILE_PATTERN, STDOUT_PATTERN, "%d %d{ABSOLUTE} %% %m%n"}) {
+            String[] rendered = Emitter.emit(pattern, timeStamp, Level.WARN, "message", null);
+            assertEquals(rendered[0], rendered[1]);
+        }
+    }
+
+    @Test
+    public void testEasyPatternLayoutDate() {
+        long timeStamp = System.currentTimeMillis();
+        for (String pattern : new String[]{FILE_PATTERN, STDOUT_PATTERN, "%d %d{ABSOLUTE} %d{DATE} %-30d{ISO8601}|%n",
+                "%.5d{HH:mm:ss,SSS} %d{bad pattern}"}) {
+            for (long time : new long[]{timeStamp, timeStamp + 1, timeStamp + 61001, 0L}) {
+                LoggingEvent event = new LoggingEvent(PatternRendererTest.class.getName(), Logger.getLogger("test"),
+                        time, Level.INFO, "message", "main", null, null, null, null);
+                assertEquals(new PatternLayout(pattern).format(event), new EasyPatternLayout(pattern).format(event));
+            }
+        }
+    }
+
+    @Test
+    public void testThrowableAndNullMessage() {
+        String[] rendered = Emitter.emit(FILE_PATTERN, 0L, Level.ERROR, null,
+                new IllegalStateException("boom"));
+        assertEquals(rendered[0], rendered[1]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedConversion() {
+        new PatternRenderer("%-5p %c - %m%n", UTF_8);
+    }
+
+    @Test
+    public void testCachedThreadNameAndLocation() {
+        PatternRenderer renderer = new PatternRenderer("[%t] %l", UTF_8);
+        CallerCache callers = new CallerCache();
+        Thread thread = Thread.currentThread();
+        String originalName = thread.getName();
+        try {
+            String[] rendered = new String[3];
+            for (int i = 0; i < rendered.length; i++) {
+                if (i == 2) {
+                    thread.setName("线程-renamed");
+                }
+                rendered[i] = Emitter.render(renderer, 0L, Level.INFO, null, null, callers);
+            }
+            assertEquals(rendered[0], rendered[1]);
+            assertEquals(rendered[0].replace("[" + originalName + "]", "[线程-renamed]"), rendered[2]);
+        } finally {
+            thread.setName(originalName);
+        }
+    }
+
+    /**
+     * 充当logger包装器，使log4j与PatternRenderer计算出相同的%l.
+     */
+    private static class Emitter {
+
+        static String[] emit(String pattern, long timeStamp, Level level, String message, Throwable t) {
+            LoggingEvent event = new LoggingEvent(Emitter.class.getName(), Logger.getLogger("test"),
+                    timeStamp, level, message, t);
+            StringBuilder expected = new StringBuilder(new PatternLayout(pattern).format(event));
+            if (t != null) {
+                for (String line : event.getThrowableStrRep()) {
+                    expected.append(line).append(System.getProperty("line.separator"));
+                }
+            }
+
+            return new String[]{expected.toString(),
+                    render(new PatternRenderer(pattern, UTF_8), timeStamp, level, message, t, null)};
+        }
+
+        static String render(PatternRenderer renderer, long timeStamp, Level level, String message,
+                             Throwable t, CallerCache callers) {
+            ByteSink sink = new ByteSink(UTF_8, 16);
+            renderer.render(sink, timeStamp, level, Thread.currentThread().getName(), Emitter.class.getName(),
+                    message, t, callers, LogContext.capture());
+            return UTF_8.decode(sink.flip()).toString();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.github.wings27.easylogger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RollingFileChannelTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRolloverCompressesAndAppliesRetention() throws Exception {
+        File dir = folder.getRoot();
+        File active = new File(dir, "daily_log_.log");
+
+        long yesterday = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1);
+        write(active, "yesterday\n");
+        assertTrue(active.setLastModified(yesterday));
+        File expired = new File(dir, "daily_log_.log.2000-01-01.gz");
+        write(expired, "expired");
+        assertTrue(expired.setLastModified(yesterday - TimeUnit.DAYS.toMillis(30)));
+        File unrelated = new File(dir, "daily_log_.log.json");
+        write(unrelated, "another writer");
+        assertTrue(unrelated.setLastModified(yesterday - TimeUnit.DAYS.toMillis(30)));
+
+        LogCompressor compressor = new LogCompressor(1024 * 1024, TimeUnit.DAYS.toMillis(7), 0);
+        RollingFileChannel channel = new RollingFileChannel(active.getPath(), "'.'yyyy-MM-dd", compressor);
+        channel.write(ByteBuffer.wrap("today\n".getBytes("UTF-8")));
+        channel.close();
+        compressor.close();
+
+        String suffix = new SimpleDateFormat("'.'yyyy-MM-dd").format(new Date(yesterday));
+        File compressed = new File(dir, active.getName() + suffix + ".gz");
+        assertEquals("today\n", read(new FileInputStream(active)));
+        assertEquals("yesterday\n", read(new GZIPInputStream(new FileInputStream(compressed))));
+        assertFalse(new File(dir, active.getName() + suffix).exists());
+        assertFalse(expired.exists());
+        assertTrue(unrelated.exists());
+    }
+
+    @Test
+    public void testRestartCompressesLeftoverFiles() throws Exception {
+        File dir = folder.getRoot();
+        File active = new File(dir, "daily_log_.log");
+        File leftover = new File(dir, "daily_log_.log.2000-01-01");
+        write(leftover, "leftover\n");
+        File unrelated = new File(dir, "daily_log_.log.json");
+        write(unrelated, "another writer");
+
+        LogCompressor compressor = new LogCompressor(0, 0, 0);
+        RollingFileChannel channel = new RollingFileChannel(active.getPath(), "'.'yyyy-MM-dd", compressor);
+        channel.close();
+        compressor.close();
+
+        assertEquals("leftover\n", read(new GZIPInputStream(new FileInputStream(leftover.getPath() + ".gz"))));
+        assertFalse(leftover.exists());
+        assertTrue(unrelated.exists());
+        assertFalse(new File(unrelated.getPath() + ".gz").exists());
+
+        // 关闭后提交的文件保持原样
+        compressor.submit(unrelated, active.getName(), "'.'yyyy-MM-dd");
+        assertTrue(unrelated.exists());
+    }
+
+    private static void write(File file, String content) throws Exception {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+
+    private static String read(InputStream in) throws Exception {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), "UTF-8");
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.github.wings27.easylogger;
+
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+
+public class TimestampRendererTest {
+
+    private static final String[] PATTERNS = {
+            "HH:mm:ss", "yyyy-MM-dd HH:mm:ss", "yyyy-MM-dd HH:mm:ss,SSS", "dd MMM yyyy HH:mm:ss,SSS",
+            "HH:mm", "H:m:s.S"
+    };
+
+    @Test
+    public void testSameOutputAsSimpleDateFormat() {
+        long start = System.currentTimeMillis();
+        for (String pattern : PATTERNS) {
+            TimestampRenderer renderer = new TimestampRenderer(pattern);
+            SimpleDateFormat format = new SimpleDateFormat(pattern);
+            // 覆盖跨秒、跨分钟以及时间倒退的情况
+            for (long timeStamp = start; timeStamp < start + 3 * 60 * 1000L; timeStamp += 997) {
+                assertRendered(renderer, format, timeStamp);
+                assertRendered(renderer, format, timeStamp - 61 * 1000L);
+            }
+        }
+    }
+
+    private static void assertRendered(TimestampRenderer renderer, SimpleDateFormat format, long timeStamp) {
+        StringBuilder buf = new StringBuilder("prefix");
+        renderer.append(buf, timeStamp);
+        assertEquals("prefix" + format.format(new Date(timeStamp)), buf.toString());
+    }
+}